@@ -1,20 +1,31 @@
 package com.deque.html.axecore.playwright;
 
 import com.deque.html.axecore.args.*;
+import com.deque.html.axecore.baseline.BaselineStore;
+import com.deque.html.axecore.crawl.AdaptiveRuleSelector;
+import com.deque.html.axecore.crawl.RuleTimingAggregator;
+import com.deque.html.axecore.partial.PartialResultBuffer;
 import com.deque.html.axecore.results.AxeResults;
 import com.deque.html.axecore.results.FrameContext;
+import com.deque.html.axecore.results.SkippedFrame;
+import com.deque.html.axecore.scripts.PerformanceTimerScript;
+import com.deque.html.axecore.scripts.QuiescenceScript;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.ElementHandle;
 import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.JSHandle;
 import com.microsoft.playwright.Page;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
 import org.apache.commons.io.IOUtils;
 
@@ -25,6 +36,18 @@ public class AxeBuilder {
 
   private boolean legacyMode = false;
   private boolean hasRunPartial = false;
+  private Duration quietPeriod;
+  private Duration quiescenceTimeout;
+  private BaselineStore baseline;
+  private Duration frameTimeout;
+  private Duration scanBudget;
+  private long scanDeadline;
+  private List<SkippedFrame> skippedFrames = new ArrayList<>();
+  private boolean performanceTimer;
+  private long partialResultSpillThreshold = Long.MAX_VALUE;
+  private boolean initScript = false;
+  private AdaptiveRuleSelector adaptiveRules;
+  private RuleTimingAggregator ruleTimings = new RuleTimingAggregator();
   private final ObjectMapper objectMapper;
   private final Page page;
 
@@ -286,56 +309,281 @@ public class AxeBuilder {
     return this;
   }
 
+  /**
+   * Leave violations accepted in a baseline out of the results. Each violation node is looked up in
+   * the memory-mapped store by its fingerprint as soon as the results are parsed, so only new
+   * violations are reported.
+   *
+   * @param store the accepted violations, or null to report every violation
+   * @return this
+   */
+  public AxeBuilder withBaseline(BaselineStore store) {
+    this.baseline = store;
+    return this;
+  }
+
+  /**
+   * Wait for the page to settle before each analysis instead of sleeping for a fixed time. The
+   * analysis starts once the page has had no DOM mutations, no pending fetch or XMLHttpRequest
+   * requests and no running finite animations for the quiet period, or once the timeout is reached.
+   *
+   * @param quietPeriod how long the page must stay unchanged
+   * @param timeout the longest time to wait before analyzing anyway
+   * @return this
+   */
+  public AxeBuilder waitForQuiescence(Duration quietPeriod, Duration timeout) {
+    if (quietPeriod == null || timeout == null || quietPeriod.isNegative() || timeout.isNegative()) {
+      throw new IllegalArgumentException("quietPeriod and timeout must be non-negative durations");
+    }
+    this.quietPeriod = quietPeriod;
+    this.quiescenceTimeout = timeout;
+    return this;
+  }
+
+  /**
+   * Run only the rules that applied to earlier analyses of the same page template. Before each
+   * analysis, the rules are narrowed by the selector from the page url, and the results of the
+   * analysis are recorded in it; rules that were inapplicable in the last analyses of the template
+   * are left out of the analysis and of its results, and the template is analyzed with every rule
+   * again now and then to refresh the statistics.
+   *
+   * @param selector the rule statistics of each template, kept for the whole crawl
+   * @return this
+   */
+  public AxeBuilder withAdaptiveRuleSelection(AdaptiveRuleSelector selector) {
+    this.adaptiveRules = selector;
+    return this;
+  }
+
+  /**
+   * Write the partial results of an analysis to a temporary file once they add up to more than the
+   * given number of characters, instead of holding them on the heap until they are sent to
+   * axe.finishRun. The results are streamed back from the file in chunks, and the file is deleted
+   * at the end of the analysis. Only applies to axe versions with axe.runPartial.
+   *
+   * @param threshold the characters of partial results to hold on the heap
+   * @return this
+   */
+  public AxeBuilder withPartialResultSpillThreshold(long threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("threshold must not be negative");
+    }
+    this.partialResultSpillThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Use axe-core registered in the browser context by {@link #registerInitScript(BrowserContext)}.
+   * The analysis only checks that axe is present in each frame and configures it, and injects axe
+   * into the frames it is missing from, such as those loaded before the script was registered, and
+   * into the frames in which an earlier analysis timed out.
+   *
+   * @param state whether to use the axe-core of the init script
+   * @return this
+   */
+  public AxeBuilder withInitScript(boolean state) {
+    this.initScript = state;
+    return this;
+  }
+
+  /**
+   * Time each rule with the axe performance timer. The time each rule took in every frame is summed
+   * into {@link AxeResults#getRuleTimings()}, longest first, split into the phases axe measures:
+   * gathering the elements, matching them and running the checks. The timer adds some overhead of
+   * its own, so leave it off for regular analyses.
+   *
+   * @param state whether to time each rule
+   * @return this
+   */
+  public AxeBuilder withPerformanceTimer(boolean state) {
+    this.performanceTimer = state;
+    return this;
+  }
+
+  /**
+   * Limit how long axe may run in each child frame. A frame that takes longer is left out of the
+   * results and listed in {@link AxeResults#getSkippedFrames()}, and the analysis goes on with the
+   * other frames instead of failing.
+   *
+   * @param frameTimeout the longest time axe may run in one frame
+   * @return this
+   */
+  public AxeBuilder withFrameTimeout(Duration frameTimeout) {
+    if (frameTimeout == null || frameTimeout.isNegative() || frameTimeout.isZero()) {
+      throw new IllegalArgumentException("frameTimeout must be a positive duration");
+    }
+    this.frameTimeout = frameTimeout;
+    return this;
+  }
+
+  /**
+   * Limit how long the frames of an analysis may take altogether. The main frame is always
+   * analyzed; once the budget is spent, the remaining frames are left out of the results and listed
+   * in {@link AxeResults#getSkippedFrames()}, and the results are built from the frames analyzed so
+   * far.
+   *
+   * @param scanBudget the longest time the whole analysis may take
+   * @return this
+   */
+  public AxeBuilder withScanBudget(Duration scanBudget) {
+    if (scanBudget == null || scanBudget.isNegative() || scanBudget.isZero()) {
+      throw new IllegalArgumentException("scanBudget must be a positive duration");
+    }
+    this.scanBudget = scanBudget;
+    return this;
+  }
+
   /**
    * Analyze webpage against axe-cores accessibility engine and return array of results
    *
    * @return Array of results containing incomplete, inapplicable, passes, and violations
    */
   public AxeResults analyze() {
+    return analyze(buildProfile());
+  }
 
-    // We need to serialize the context and options passed by the user (if any)
-    // to Strings to be able to parse them via Playwright
-    String axeContext = serialize(this.context);
-    String axeOptions = serialize(this.options);
+  /**
+   * Analyze webpage with a prebuilt profile. The context, options and legacy mode come from the
+   * profile, which is not serialized again; the other settings (such as the quiet period and the
+   * baseline) come from this builder. A profile can be shared between threads, each scanning its
+   * own page with its own builder.
+   *
+   * @param profile the context, options and frame settings of the analysis
+   * @return Array of results containing incomplete, inapplicable, passes, and violations
+   */
+  public AxeResults analyze(ScanProfile profile) {
+    if (profile == null) {
+      throw new IllegalArgumentException("profile is required");
+    }
+    if (this.adaptiveRules == null) {
+      return analyzeProfile(profile);
+    }
+    String url = this.page.url();
+    List<String> rules = this.adaptiveRules.selectRules(url);
+    ScanProfile analysisProfile = profile;
+    if (rules != null) {
+      AxeRunOnlyOptions runOnly = new AxeRunOnlyOptions();
+      runOnly.setType("rule");
+      runOnly.setValues(rules);
+      analysisProfile =
+          new ScanProfile(
+              profile.getContextJson(),
+              setOption(profile.getOptionsJson(), "runOnly", runOnly),
+              profile.isLegacyMode(),
+              profile.isIframeTestingDisabled(),
+              profile.isPerformanceTimer());
+    }
+    AxeResults axeResults = analyzeProfile(analysisProfile);
+    if (!axeResults.isErrored()) {
+      this.adaptiveRules.record(url, axeResults);
+    }
+    return axeResults;
+  }
+
+  private AxeResults analyzeProfile(ScanProfile profile) {
+    if (this.quietPeriod != null) {
+      this.page.evaluate(
+          "([quietMillis, timeoutMillis]) => ("
+              + QuiescenceScript.FUNCTION
+              + ")(quietMillis, timeoutMillis)",
+          Arrays.asList(this.quietPeriod.toMillis(), this.quiescenceTimeout.toMillis()));
+    }
+
+    String axeContext = profile.getContextJson();
+    String axeOptions = profile.getOptionsJson();
 
     try {
-      /**
-       * this allows Playwright to run the script to be used later rather than invoking it instantly
-       *
-       * @see https://github.com/microsoft/playwright-java/issues/1070
-       */
-      this.page.evaluate("() => {" + getAxeScript() + "}");
+      if (!this.initScript || !hasAxe(this.page.mainFrame())) {
+        /**
+         * this allows Playwright to run the script to be used later rather than invoking it
+         * instantly
+         *
+         * @see https://github.com/microsoft/playwright-java/issues/1070
+         */
+        this.page.evaluate("() => {" + getAxeScript() + "}");
+      }
     } catch (RuntimeException runtimeException) {
       throw new RuntimeException("Problematic axe-source, unable to inject.", runtimeException);
     }
 
     // Check if client has axe version>= 4.3
     this.hasRunPartial = hasRunPartial(page);
-    if (!hasRunPartial || legacyMode) {
-      Object results = run(axeContext, axeOptions);
-      return this.objectMapper.convertValue(results, AxeResults.class);
+    if (!hasRunPartial || profile.isLegacyMode()) {
+      Object results = run(axeContext, axeOptions, profile.isLegacyMode());
+      AxeResults axeResults = parseResults(results);
+      if (profile.isPerformanceTimer()) {
+        // axe.run times the rules of every frame in the frame that runs them; only the main frame
+        // is read
+        this.ruleTimings = new RuleTimingAggregator();
+        readRuleTimings(page.mainFrame());
+        axeResults.setRuleTimings(this.ruleTimings.getTimings());
+      }
+      return axeResults;
     }
 
-    ArrayList<String> partialResults;
-    try {
-      partialResults = runPartialRecursive(page.mainFrame(), axeContext, true);
-    } catch (RuntimeException runtimeException) {
-      if (runtimeException.getMessage().contains("Unable to inject axe-source.")) {
-        throw runtimeException;
+    this.skippedFrames = new ArrayList<>();
+    this.ruleTimings = new RuleTimingAggregator();
+    this.scanDeadline = this.scanBudget == null ? 0 : System.nanoTime() + this.scanBudget.toNanos();
+
+    Object results;
+    try (PartialResultBuffer partialResults =
+        new PartialResultBuffer(this.partialResultSpillThreshold)) {
+      try {
+        runPartialRecursive(
+            page.mainFrame(), profile, axeContext, true, new ArrayList<>(), partialResults);
+      } catch (RuntimeException runtimeException) {
+        if (runtimeException.getMessage().contains("Unable to inject axe-source.")) {
+          throw runtimeException;
+        }
+        return axeResultsErrors(runtimeException);
       }
-      return axeResultsErrors(runtimeException);
+
+      try {
+        results = finishRun(partialResults);
+
+      } catch (RuntimeException runtimeException) {
+        throw new RuntimeException(
+            "Axe finishRun failed. Please see: https://github.com/dequelabs/axe-core-maven-html/blob/develop/playwright/error-handling.md",
+            runtimeException);
+      }
+    }
+    AxeResults axeResults = parseResults(results);
+    if (!this.skippedFrames.isEmpty()) {
+      axeResults.setSkippedFrames(this.skippedFrames);
+    }
+    if (profile.isPerformanceTimer()) {
+      axeResults.setRuleTimings(this.ruleTimings.getTimings());
     }
+    return axeResults;
+  }
 
-    Object results;
-    try {
-      results = finishRun(partialResults);
+  /**
+   * Serialize the current context, options and legacy mode into an immutable profile, to run any
+   * number of analyses with {@link #analyze(ScanProfile)}. Later changes to this builder do not
+   * affect the profile.
+   *
+   * @return the profile
+   */
+  public ScanProfile buildProfile() {
+    // We need to serialize the context and options passed by the user (if any)
+    // to Strings to be able to parse them via Playwright
+    String axeOptions = serialize(this.options);
+    if (this.performanceTimer) {
+      axeOptions = setOption(axeOptions, "performanceTimer", true);
+    }
+    return new ScanProfile(
+        serialize(this.context), axeOptions, legacyMode, false, this.performanceTimer);
+  }
 
-    } catch (RuntimeException runtimeException) {
-      throw new RuntimeException(
-          "Axe finishRun failed. Please see: https://github.com/dequelabs/axe-core-maven-html/blob/develop/playwright/error-handling.md",
-          runtimeException);
+  /** sets an option in serialized options, replacing its value if it is set. */
+  private String setOption(String axeOptions, String name, Object value) {
+    try {
+      ObjectNode options = (ObjectNode) objectMapper.readTree(axeOptions);
+      options.set(name, objectMapper.valueToTree(value));
+      return serialize(options);
+    } catch (JsonProcessingException jsonProcessingException) {
+      throw new IllegalArgumentException("Unable to serialize object.", jsonProcessingException);
     }
-    return this.objectMapper.convertValue(results, AxeResults.class);
   }
 
   /**
@@ -354,16 +602,25 @@ public class AxeBuilder {
    * runPartialRecursive injects axe into each frame (including nested frames)
    *
    * @param frame the current iframe
+   * @param profile the options and frame settings of the analysis
    * @param context the current context of the iframe
    * @param isTopLevel is the iframe at the top level (page.mainFrame() is the top level frame)
-   * @return All partial results
+   * @param framePath the selectors of the frames leading to the iframe, from the main frame
+   * @param partialResults receives the partial results of the iframe and the frames inside it
    * @see <a href="https://github.com/dequelabs/axe-core/blob/master/doc/run-partial.md">axe-core
    *     runPartial</a>
    */
-  private ArrayList<String> runPartialRecursive(Frame frame, String context, boolean isTopLevel) {
+  private void runPartialRecursive(
+      Frame frame,
+      ScanProfile profile,
+      String context,
+      boolean isTopLevel,
+      List<Object> framePath,
+      PartialResultBuffer partialResults) {
+    int frameStart = partialResults.size();
     try {
       if (!isTopLevel) {
-        injectAxeSource(frame);
+        injectAxeSource(frame, false);
       }
       Object frameContextResult = getFrameContexts(frame, context);
 
@@ -371,51 +628,82 @@ public class AxeBuilder {
           objectMapper.convertValue(
               frameContextResult, new TypeReference<ArrayList<FrameContext>>() {});
 
-      String result = runPartial(frame, context, serialize(this.options));
-
-      ArrayList<String> partialResults = new ArrayList<>();
-      partialResults.add(result);
+      if (isTopLevel || !hasTimeLimit()) {
+        partialResults.add(runPartial(frame, context, profile.getOptionsJson()));
+      } else {
+        long frameMillis = frameTimeMillis();
+        String result = runPartial(frame, context, profile.getOptionsJson(), frameMillis);
+        if (result == null) {
+          this.skippedFrames.add(
+              new SkippedFrame(
+                  framePath,
+                  this.frameTimeout != null && frameMillis == this.frameTimeout.toMillis()
+                      ? SkippedFrame.FRAME_TIMEOUT
+                      : SkippedFrame.SCAN_BUDGET));
+          partialResults.add(null);
+          return;
+        }
+        partialResults.add(result);
+      }
+      if (profile.isPerformanceTimer()) {
+        readRuleTimings(frame);
+      }
 
+      if (profile.isIframeTestingDisabled()) {
+        return;
+      }
       frameContexts.forEach(
           frameContext -> {
+            List<Object> iframePath = new ArrayList<>(framePath);
+            iframePath.add(frameContext.getFrameSelector());
+            if (this.scanBudget != null && System.nanoTime() >= this.scanDeadline) {
+              this.skippedFrames.add(new SkippedFrame(iframePath, SkippedFrame.SCAN_BUDGET));
+              partialResults.add(null);
+              return;
+            }
             String iframeContext = serialize(frameContext.getFrameContext());
             String iframeSelector = serialize(frameContext.getFrameSelector());
-            Object iframe = getIframeHandle(frame, iframeSelector);
-            if (iframe instanceof ElementHandle) {
-              Frame childFrame = ((ElementHandle) iframe).contentFrame();
-              ArrayList<String> childFrameResults =
-                  runPartialRecursive(childFrame, iframeContext, false);
-              partialResults.addAll(childFrameResults);
+            Frame childFrame = getChildFrame(frame, iframeSelector);
+            if (childFrame != null) {
+              runPartialRecursive(
+                  childFrame, profile, iframeContext, false, iframePath, partialResults);
             } else {
               partialResults.add(null);
             }
           });
-      return partialResults;
 
     } catch (RuntimeException runtimeException) {
       if (isTopLevel) {
         throw runtimeException;
       }
-      ArrayList<String> empty = new ArrayList<>();
-      empty.add(null);
-      return empty;
+      // the frame and the frames inside it are left out together
+      partialResults.truncate(frameStart);
+      partialResults.add(null);
     } finally {
       page.mainFrame();
     }
   }
 
+  /** adds the rule timings measured in a frame to those of the analysis. */
+  private void readRuleTimings(Frame frame) {
+    Object measures = frame.evaluate(PerformanceTimerScript.FUNCTION);
+    if (measures instanceof String) {
+      this.ruleTimings.addMeasures((String) measures);
+    }
+  }
+
   // Note: axe.run pre 4.3 (no runPartial / finishRun)
-  private Object run(String axeContext, String axeOptions) {
+  private Object run(String axeContext, String axeOptions, boolean legacyMode) {
     // inject axe source into each iframe if legacyMode is not enabled
     if (!legacyMode) {
-      this.page.frames().forEach(this::injectAxeSource);
+      this.page.frames().forEach(frame -> injectAxeSource(frame, legacyMode));
     }
 
     return page.evaluate(
         "([axeContext, axeOptions]) => {"
             + "const context = JSON.parse(axeContext);"
             + "const options = JSON.parse(axeOptions);"
-            + "return axe.run(context, options).then(res => JSON.parse(JSON.stringify(res)));"
+            + "return axe.run(context, options).then(res => JSON.stringify(res));"
             + "}",
         Arrays.asList(axeContext, axeOptions));
   }
@@ -439,7 +727,7 @@ public class AxeBuilder {
         context);
   }
 
-  private Object getIframeHandle(Frame frame, String iframeSelector) {
+  private JSHandle getIframeHandle(Frame frame, String iframeSelector) {
     return frame.evaluateHandle(
         "(iframeSelector) => {"
             + "const selector = JSON.parse(iframeSelector);"
@@ -448,6 +736,21 @@ public class AxeBuilder {
         iframeSelector);
   }
 
+  /**
+   * Looks up the frame of an iframe element. The element handle is disposed as soon as the frame is
+   * found, so pages analyzed many times do not pile up handles in the browser and in Playwright.
+   *
+   * @return the frame, or null if the iframe element was not found
+   */
+  private Frame getChildFrame(Frame frame, String iframeSelector) {
+    JSHandle iframe = getIframeHandle(frame, iframeSelector);
+    try {
+      return iframe instanceof ElementHandle ? ((ElementHandle) iframe).contentFrame() : null;
+    } finally {
+      iframe.dispose();
+    }
+  }
+
   private String runPartial(Frame frame, String context, String options) {
     return (String)
         frame.evaluate(
@@ -459,6 +762,45 @@ public class AxeBuilder {
             Arrays.asList(context, options));
   }
 
+  /**
+   * Runs axe.runPartial, resolving with null when it does not finish within the deadline. The run
+   * keeps going in the frame after the deadline, so the axe instance is marked as timed out, and is
+   * not reused by {@link #hasAxe(Frame)}.
+   */
+  private String runPartial(Frame frame, String context, String options, long deadlineMillis) {
+    return (String)
+        frame.evaluate(
+            "([axeContext, axeOptions, deadline]) => {"
+                + "const context = JSON.parse(axeContext);"
+                + "const options = JSON.parse(axeOptions);"
+                + "const instance = axe;"
+                + "let timer;"
+                + "return Promise.race(["
+                + "  axe.runPartial(context, options).then(res => JSON.stringify(res)),"
+                + "  new Promise(resolve => {"
+                + "    timer = setTimeout(() => {"
+                + "      instance._timedOut = true;"
+                + "      resolve(null);"
+                + "    }, deadline);"
+                + "  })"
+                + "]).finally(() => clearTimeout(timer));"
+                + "}",
+            Arrays.asList(context, options, deadlineMillis));
+  }
+
+  private boolean hasTimeLimit() {
+    return this.frameTimeout != null || this.scanBudget != null;
+  }
+
+  /** gets how long axe may run in the current frame, in milliseconds. */
+  private long frameTimeMillis() {
+    long millis = this.frameTimeout == null ? Long.MAX_VALUE : this.frameTimeout.toMillis();
+    if (this.scanBudget != null) {
+      millis = Math.min(millis, Math.max(0, (this.scanDeadline - System.nanoTime()) / 1_000_000));
+    }
+    return millis;
+  }
+
   /**
    * Collects all the partial results (top window, child and then sibling frames)
    *
@@ -468,10 +810,10 @@ public class AxeBuilder {
    *     href="https://github.com/dequelabs/axe-core/blob/master/doc/run-partial.md#axefinishrunpartialresults-options-promise>axe-core
    *     runPartial</a>
    */
-  private Object finishRun(ArrayList<String> partialResults) {
+  private Object finishRun(PartialResultBuffer partialResults) {
     Browser browser = page.context().browser();
     Page blankPage = browser.newPage();
-    blankPage.evaluate(getAxeScript() + getAxeConfigure(hasRunPartial));
+    blankPage.evaluate(getAxeScript() + getAxeConfigure(hasRunPartial, false));
 
     storePartialResults(blankPage, partialResults);
 
@@ -482,7 +824,8 @@ public class AxeBuilder {
           blankPage.evaluate(
               "() => {"
                   + "const partialResults = JSON.parse(window.partialResults || '[]');"
-                  + "return axe.finishRun(partialResults);"
+                  + "return Promise.resolve(axe.finishRun(partialResults))"
+                  + ".then(res => JSON.stringify(res));"
                   + "}");
     } catch (RuntimeException runtimeException) {
       throw new RuntimeException(
@@ -495,42 +838,28 @@ public class AxeBuilder {
   }
 
   /**
-   * Serializes and chunks partial results to send to the browser. This is done because webdriver
-   * has a maximum size for arguments.
+   * Streams the partial results to the browser in chunks, as one JSON array. This is done because
+   * webdriver has a maximum size for arguments.
    */
-  private void storePartialResults(Page blankPage, ArrayList<String> partialResults) {
-    // partialResults is a list of result objects, so we can build a JSON array easily with
-    // appending strings
-    StringJoiner sj = new StringJoiner(",", "[", "]");
-    for (String pr : partialResults) {
-      sj.add(pr);
-    }
-    String partialResString = sj.toString();
-
-    int sizeLimit = 20_000_000;
-    while (!partialResString.isEmpty()) {
-      int chunkSize = sizeLimit;
-      if (chunkSize > partialResString.length()) {
-        chunkSize = partialResString.length();
-      }
-      String chunk = partialResString.substring(0, chunkSize);
-      partialResString = partialResString.substring(chunkSize);
-      blankPage.evaluate(
-          "(chunk) => {"
-              + "window.partialResults ??= '';"
-              + "window.partialResults += chunk;"
-              + "}",
-          chunk);
-    }
+  private void storePartialResults(Page blankPage, PartialResultBuffer partialResults) {
+    partialResults.forEachChunk(
+        20_000_000,
+        chunk ->
+            blankPage.evaluate(
+                "(chunk) => {"
+                    + "window.partialResults ??= '';"
+                    + "window.partialResults += chunk;"
+                    + "}",
+                chunk));
   }
 
   private boolean hasRunPartial(Page page) {
     return (boolean) page.evaluate("typeof window.axe.runPartial === 'function'");
   }
 
-  private String getAxeConfigure(boolean hasRunPartial) {
+  private String getAxeConfigure(boolean hasRunPartial, boolean legacyMode) {
     final String origins =
-        !this.legacyMode && !hasRunPartial ? "'<unsafe_all_origins>'" : "'<same_origin>'";
+        !legacyMode && !hasRunPartial ? "'<unsafe_all_origins>'" : "'<same_origin>'";
 
     return String.format(
         ";axe.configure({"
@@ -540,14 +869,44 @@ public class AxeBuilder {
         origins);
   }
 
-  private void injectAxeSource(Frame frame) {
+  private void injectAxeSource(Frame frame, boolean legacyMode) {
     try {
-      frame.evaluate(getAxeScript() + getAxeConfigure(hasRunPartial));
+      if (this.initScript && hasAxe(frame)) {
+        frame.evaluate(getAxeConfigure(hasRunPartial, legacyMode));
+      } else {
+        frame.evaluate(getAxeScript() + getAxeConfigure(hasRunPartial, legacyMode));
+      }
     } catch (RuntimeException runtimeException) {
       throw new RuntimeException("Unable to inject axe-source.", runtimeException);
     }
   }
 
+  /**
+   * Checks whether axe was already loaded into a frame, such as by the init script, and can be run.
+   * An axe that timed out in an earlier analysis may still be running, and would refuse to start
+   * again, so it is replaced.
+   */
+  private static boolean hasAxe(Frame frame) {
+    return (boolean)
+        frame.evaluate(
+            "() => typeof window.axe === 'object' && window.axe !== null && !window.axe._timedOut");
+  }
+
+  /**
+   * Registers axe-core as an init script of a browser context, so axe is parsed once as every page
+   * and frame of the context loads, instead of being injected into each frame on every analysis.
+   * Register it before the pages to analyze are loaded, and analyze them with {@link
+   * #withInitScript(boolean)}.
+   *
+   * @param context the browser context to register axe-core in
+   */
+  public static void registerInitScript(BrowserContext context) {
+    if (context == null) {
+      throw new IllegalArgumentException("context is required");
+    }
+    context.addInitScript(getAxeScript());
+  }
+
   // get the axe-script from node_modules
   public static String getAxeScript() {
     URL axeUrl = AxeBuilder.class.getResource("/axe.min.js");
@@ -563,6 +922,28 @@ public class AxeBuilder {
     return axeSource;
   }
 
+  /**
+   * Converts the axe response to results, dropping the violations accepted in the baseline. A
+   * response serialized to JSON in the browser is parsed straight into the results, without
+   * building the object tree of the Playwright response first.
+   */
+  private AxeResults parseResults(Object results) {
+    AxeResults axeResults;
+    if (results instanceof String) {
+      try {
+        axeResults = this.objectMapper.readValue((String) results, AxeResults.class);
+      } catch (JsonProcessingException jsonProcessingException) {
+        throw new RuntimeException("Unable to parse the axe results.", jsonProcessingException);
+      }
+    } else {
+      axeResults = this.objectMapper.convertValue(results, AxeResults.class);
+    }
+    if (this.baseline != null) {
+      axeResults.setViolations(this.baseline.removeKnownViolations(axeResults.getViolations()));
+    }
+    return axeResults;
+  }
+
   private <T> String serialize(final T obj) {
     try {
       ObjectMapper mapper = new ObjectMapper();
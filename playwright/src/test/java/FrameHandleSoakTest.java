@@ -0,0 +1,85 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.deque.html.axecore.playwright.AxeBuilder;
+import com.deque.html.axecore.results.AxeResults;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Analyzes the same frame-heavy page many times in one page, and checks that no element handle is
+ * left behind. Every handle the client holds is registered on its Playwright connection, which
+ * keeps it reachable in the JVM, and pins a remote object in the browser until it is disposed; so
+ * the handles registered on the connection are counted, and a leak adds one per iframe on every
+ * analysis. Set the axe.soak.iterations system property to soak for longer.
+ */
+public class FrameHandleSoakTest {
+  private static final int ITERATIONS = Integer.getInteger("axe.soak.iterations", 20);
+
+  private final String server = "http://localhost:1337/";
+  private Playwright playwright;
+  private Browser browser;
+  private Page page;
+
+  @Before
+  public void init() {
+    playwright = Playwright.create();
+    browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+    page = browser.newPage();
+  }
+
+  @After
+  public void teardown() {
+    playwright.close();
+  }
+
+  @Test
+  public void shouldNotKeepHandlesOverRepeatedAnalyses() throws Exception {
+    page.navigate(server + "nested-iframes.html");
+    AxeBuilder builder = new AxeBuilder(page).withRules(Collections.singletonList("label"));
+
+    analyze(builder);
+    long before = countHandles(page);
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      analyze(builder);
+    }
+
+    assertEquals(before, countHandles(page));
+  }
+
+  private static void analyze(final AxeBuilder builder) {
+    AxeResults results = builder.analyze();
+    assertFalse(results.getErrorMessage(), results.isErrored());
+  }
+
+  /** counts the JSHandle and ElementHandle objects registered on the connection of the page. */
+  private static long countHandles(final Page page) throws ReflectiveOperationException {
+    Class<?> channelOwner = Class.forName("com.microsoft.playwright.impl.ChannelOwner");
+    Object connection = field(channelOwner, "connection").get(page);
+    Map<?, ?> objects = (Map<?, ?>) field(connection.getClass(), "objects").get(connection);
+    Field type = field(channelOwner, "type");
+    long handles = 0;
+    for (Object object : objects.values()) {
+      String objectType = (String) type.get(object);
+      if ("JSHandle".equals(objectType) || "ElementHandle".equals(objectType)) {
+        handles++;
+      }
+    }
+    return handles;
+  }
+
+  private static Field field(final Class<?> owner, final String name) throws NoSuchFieldException {
+    Field field = owner.getDeclaredField(name);
+    field.setAccessible(true);
+    return field;
+  }
+}
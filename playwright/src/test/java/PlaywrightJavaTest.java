@@ -4,14 +4,21 @@ import com.deque.html.axecore.args.AxeRuleOptions;
 import com.deque.html.axecore.args.AxeRunOptions;
 import com.deque.html.axecore.args.FromFrames;
 import com.deque.html.axecore.args.FromShadowDom;
+import com.deque.html.axecore.args.ScanProfile;
+import com.deque.html.axecore.baseline.BaselineStore;
+import com.deque.html.axecore.crawl.AdaptiveRuleSelector;
 import com.deque.html.axecore.playwright.AxeBuilder;
 import com.deque.html.axecore.playwright.Reporter;
 import com.deque.html.axecore.results.AxeResults;
 import com.deque.html.axecore.results.CheckedNode;
 import com.deque.html.axecore.results.Rule;
+import com.deque.html.axecore.results.RuleTiming;
+import com.deque.html.axecore.results.SkippedFrame;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Frame;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Playwright;
 import java.io.File;
@@ -25,7 +32,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.naming.OperationNotSupportedException;
 import org.junit.*;
@@ -1007,4 +1019,245 @@ public class PlaywrightJavaTest {
     assertEquals(axeResults.getPasses().size(), 1);
     assertEquals(axeResults.getPasses().get(0).getId(), "duplicate-id");
   }
+
+  @Test
+  public void shouldWaitForQuiescenceBeforeAnalyzing() {
+    page.navigate(server + "index.html");
+    page.evaluate(
+        "() => setTimeout(() => document.body.appendChild(document.createElement('img')), 300)");
+
+    AxeResults axeResults =
+        new AxeBuilder(page)
+            .waitForQuiescence(Duration.ofMillis(200), Duration.ofSeconds(5))
+            .withRules(Collections.singletonList("image-alt"))
+            .analyze();
+
+    assertEquals(axeResults.getViolations().size(), 1);
+    assertEquals(axeResults.getViolations().get(0).getId(), "image-alt");
+  }
+
+  @Test
+  public void shouldLeaveBaselineViolationsOutOfResults() throws IOException {
+    page.navigate(server + "index.html");
+    page.evaluate("() => document.body.appendChild(document.createElement('img'))");
+    Path baselineFile = Files.createTempFile("axe-baseline", ".axeb");
+    AxeResults accepted = new AxeBuilder(page).analyze();
+    BaselineStore.writer().addViolations(accepted.getViolations()).write(baselineFile);
+
+    page.evaluate("() => document.body.appendChild(document.createElement('input'))");
+    try (BaselineStore baseline = BaselineStore.open(baselineFile)) {
+      AxeResults axeResults = new AxeBuilder(page).withBaseline(baseline).analyze();
+
+      assertEquals(axeResults.getViolations().size(), 1);
+      assertEquals(axeResults.getViolations().get(0).getId(), "label");
+    } finally {
+      Files.deleteIfExists(baselineFile);
+    }
+  }
+
+  @Test
+  public void shouldSkipRemainingFramesOnceTheScanBudgetIsSpent() {
+    page.navigate(server + "nested-iframes.html");
+
+    AxeResults axeResults =
+        new AxeBuilder(page)
+            .withScanBudget(Duration.ofNanos(1))
+            .withRules(Collections.singletonList("label"))
+            .analyze();
+
+    assertFalse(axeResults.isErrored());
+    assertFalse(axeResults.getSkippedFrames().isEmpty());
+    for (SkippedFrame skipped : axeResults.getSkippedFrames()) {
+      assertEquals(SkippedFrame.SCAN_BUDGET, skipped.getReason());
+      assertEquals(1, ((List<?>) skipped.getFrameSelector()).size());
+    }
+  }
+
+  @Test
+  public void shouldCollectRuleTimings() {
+    page.navigate(server + "nested-iframes.html");
+
+    AxeResults axeResults =
+        new AxeBuilder(page)
+            .withPerformanceTimer(true)
+            .withRules(Arrays.asList("label", "region"))
+            .analyze();
+
+    assertFalse(axeResults.isErrored());
+    List<RuleTiming> timings = axeResults.getRuleTimings();
+    assertNotNull(timings);
+    assertEquals(2, timings.size());
+    for (RuleTiming timing : timings) {
+      assertTrue(Arrays.asList("label", "region").contains(timing.getRuleId()));
+      assertTrue(timing.getCount() > 1);
+    }
+    assertTrue(timings.get(0).getTotalMillis() >= timings.get(1).getTotalMillis());
+    assertNull(new AxeBuilder(page).analyze().getRuleTimings());
+  }
+
+  @Test
+  public void shouldLeaveOutInapplicableRulesAdaptively() {
+    page.navigate(server + "nested-iframes.html");
+    AdaptiveRuleSelector selector = new AdaptiveRuleSelector(10, 1);
+
+    AxeResults full = new AxeBuilder(page).withAdaptiveRuleSelection(selector).analyze();
+    AxeResults narrowed = new AxeBuilder(page).withAdaptiveRuleSelection(selector).analyze();
+
+    assertFalse(narrowed.isErrored());
+    assertFalse(full.getInapplicable().isEmpty());
+    assertTrue(narrowed.getInapplicable().isEmpty());
+    assertEquals(
+        full.getViolations().stream().map(Rule::getId).collect(Collectors.toList()),
+        narrowed.getViolations().stream().map(Rule::getId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldMatchInMemoryResultsWhenPartialResultsSpill() {
+    page.navigate(server + "nested-iframes.html");
+
+    AxeResults inMemory =
+        new AxeBuilder(page).withRules(Collections.singletonList("label")).analyze();
+    AxeResults spilled =
+        new AxeBuilder(page)
+            .withRules(Collections.singletonList("label"))
+            .withPartialResultSpillThreshold(0)
+            .analyze();
+
+    assertFalse(spilled.isErrored());
+    assertEquals(1, spilled.getViolations().size());
+    assertEquals(
+        inMemory.getViolations().get(0).getNodes().size(),
+        spilled.getViolations().get(0).getNodes().size());
+  }
+
+  @Test
+  public void shouldAnalyzeWithAxeFromInitScript() {
+    BrowserContext context = browser.newContext();
+    try {
+      AxeBuilder.registerInitScript(context);
+      Page initPage = context.newPage();
+      initPage.navigate(server + "nested-iframes.html");
+      for (Frame frame : initPage.frames()) {
+        assertEquals(true, frame.evaluate("() => typeof window.axe === 'object'"));
+      }
+      // a page with axe already loaded is not injected again
+      initPage.evaluate("() => { window.axe.__fromInitScript = true; }");
+
+      AxeResults axeResults =
+          new AxeBuilder(initPage)
+              .withInitScript(true)
+              .withRules(Collections.singletonList("label"))
+              .analyze();
+      page.navigate(server + "nested-iframes.html");
+      AxeResults injected =
+          new AxeBuilder(page).withRules(Collections.singletonList("label")).analyze();
+
+      assertFalse(axeResults.isErrored());
+      assertEquals(true, initPage.evaluate("() => window.axe.__fromInitScript === true"));
+      assertEquals(
+          injected.getViolations().get(0).getNodes().size(),
+          axeResults.getViolations().get(0).getNodes().size());
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void shouldReplaceInitScriptAxeAfterFrameTimeout() {
+    BrowserContext context = browser.newContext();
+    try {
+      AxeBuilder.registerInitScript(context);
+      Page initPage = context.newPage();
+      initPage.navigate(server + "nested-iframes.html");
+
+      AxeResults timedOut =
+          new AxeBuilder(initPage)
+              .withInitScript(true)
+              .withFrameTimeout(Duration.ofNanos(1))
+              .withRules(Collections.singletonList("label"))
+              .analyze();
+      AxeResults axeResults =
+          new AxeBuilder(initPage)
+              .withInitScript(true)
+              .withRules(Collections.singletonList("label"))
+              .analyze();
+      page.navigate(server + "nested-iframes.html");
+      AxeResults injected =
+          new AxeBuilder(page).withRules(Collections.singletonList("label")).analyze();
+
+      assertFalse(timedOut.getSkippedFrames().isEmpty());
+      assertFalse(axeResults.isErrored());
+      assertNull(axeResults.getSkippedFrames());
+      assertEquals(
+          injected.getViolations().get(0).getNodes().size(),
+          axeResults.getViolations().get(0).getNodes().size());
+      for (Frame frame : initPage.frames()) {
+        assertEquals(false, frame.evaluate("() => window.axe._timedOut === true"));
+      }
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void shouldAnalyzeWithSharedProfile() {
+    page.navigate(server + "nested-iframes.html");
+
+    AxeBuilder builder = new AxeBuilder(page).withRules(Collections.singletonList("label"));
+    ScanProfile profile = builder.buildProfile();
+    builder.withRules(Collections.singletonList("region"));
+
+    AxeResults expected =
+        new AxeBuilder(page).withRules(Collections.singletonList("label")).analyze();
+    AxeResults actual = new AxeBuilder(page).analyze(profile);
+
+    assertFalse(actual.isErrored());
+    assertEquals(1, actual.getViolations().size());
+    assertEquals("label", actual.getViolations().get(0).getId());
+    assertEquals(
+        expected.getViolations().get(0).getNodes().size(),
+        actual.getViolations().get(0).getNodes().size());
+  }
+
+  @Test
+  public void shouldAnalyzeConcurrentlyWithSharedProfile() throws Exception {
+    page.navigate(server + "nested-iframes.html");
+    ScanProfile profile =
+        new AxeBuilder(page).withRules(Collections.singletonList("label")).buildProfile();
+    int expectedNodes =
+        new AxeBuilder(page).analyze(profile).getViolations().get(0).getNodes().size();
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<AxeResults>> scans = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        scans.add(
+            executor.submit(
+                () -> {
+                  // Playwright objects are not thread safe, so every scan has its own
+                  try (Playwright playwright = Playwright.create()) {
+                    Page threadPage =
+                        playwright
+                            .chromium()
+                            .launch(new BrowserType.LaunchOptions().setHeadless(true))
+                            .newPage();
+                    threadPage.navigate(server + "nested-iframes.html");
+                    return new AxeBuilder(threadPage)
+                        .withFrameTimeout(Duration.ofSeconds(30))
+                        .analyze(profile);
+                  }
+                }));
+      }
+      for (Future<AxeResults> scan : scans) {
+        AxeResults results = scan.get(2, TimeUnit.MINUTES);
+        assertFalse(results.isErrored());
+        assertNull(results.getSkippedFrames());
+        assertEquals(1, results.getViolations().size());
+        assertEquals("label", results.getViolations().get(0).getId());
+        assertEquals(expectedNodes, results.getViolations().get(0).getNodes().size());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
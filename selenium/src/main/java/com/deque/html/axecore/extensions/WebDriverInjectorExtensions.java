@@ -25,6 +25,63 @@ import org.openqa.selenium.WebElement;
 
 /** Holds the Web driver injection extension methods. */
 public final class WebDriverInjectorExtensions {
+  // Walks window.frames from the current window, running the script in every same-origin frame
+  // through a function of the frame's own realm, so that no frame switching is needed for them.
+  // Returns the window.frames index paths of the frames left to WebDriver: cross-origin frames,
+  // frames whose content security policy forbids the function, and every frame when arguments[1]
+  // asks to switch into all of them. The frames inside those are not visited.
+  private static final String FRAME_TREE_WALK =
+      "const script = arguments[0];"
+          + "const switchAll = arguments[1];"
+          + "const boundaries = [];"
+          + "const visit = (win, path) => {"
+          + "  for (let i = 0; i < win.frames.length; i++) {"
+          + "    const child = win.frames[i];"
+          + "    let fn = null;"
+          + "    try {"
+          + "      if (!switchAll && child.document) {"
+          + "        fn = script === null ? () => {} : new child.Function(script);"
+          + "      }"
+          + "    } catch (e) {"
+          + "      fn = null;"
+          + "    }"
+          + "    if (fn === null) {"
+          + "      boundaries.push(path.concat(i));"
+          + "      continue;"
+          + "    }"
+          + "    fn.call(child);"
+          + "    visit(child, path.concat(i));"
+          + "  }"
+          + "};";
+
+  private static final String FRAME_TREE_ASYNC_WALK =
+      "const script = arguments[0];"
+          + "const switchAll = arguments[1];"
+          + "const boundaries = [];"
+          + "const visit = (win, path) => {"
+          + "  let chain = Promise.resolve();"
+          + "  for (let i = 0; i < win.frames.length; i++) {"
+          + "    chain = chain.then(() => {"
+          + "      const child = win.frames[i];"
+          + "      let fn = null;"
+          + "      try {"
+          + "        if (!switchAll && child && child.document) {"
+          + "          fn = new child.Function(script);"
+          + "        }"
+          + "      } catch (e) {"
+          + "        fn = null;"
+          + "      }"
+          + "      if (fn === null) {"
+          + "        boundaries.push(path.concat(i));"
+          + "        return;"
+          + "      }"
+          + "      return new Promise(resolve => fn.call(child, resolve))"
+          + "        .then(() => visit(child, path.concat(i)));"
+          + "    });"
+          + "  }"
+          + "  return chain;"
+          + "};";
+
   /** initializes the WebDriverInjectorExtensions class. */
   private WebDriverInjectorExtensions() {}
 
@@ -132,6 +189,141 @@ public final class WebDriverInjectorExtensions {
     }
   }
 
+  /**
+   * Injects a script into the current document and its frames, discovering the frame tree in one
+   * script call per document reached through WebDriver. Same-origin frames are injected from their
+   * parent document without switching into them; WebDriver only switches into cross-origin frames,
+   * frames that forbid evaluating strings, and every frame when a callback has to run in them. If a
+   * frame errors when injecting due to not being displayed, the error is ignored.
+   *
+   * @param driver WebDriver instance to inject into
+   * @param script The script to inject
+   * @param disableIframeTesting Whether or not to inject into iframes
+   * @param injectCB Function to call whenever a frame is injected into
+   * @param doNotInjectAxe Whether or not to inject the script
+   * @return the number of WebDriver calls made, not counting those of the callback
+   */
+  public static int injectFrameTree(
+      final WebDriver driver,
+      final String script,
+      boolean disableIframeTesting,
+      Consumer<WebDriver> injectCB,
+      boolean doNotInjectAxe) {
+    driver.switchTo().defaultContent();
+    return 1 + injectFrameSubtree(driver, script, disableIframeTesting, injectCB, doNotInjectAxe);
+  }
+
+  /**
+   * Injects a script to be run asynchronously into the current document and its frames, the same
+   * way as {@link #injectFrameTree(WebDriver, String, boolean, Consumer, boolean)}. The frames of a
+   * document are enumerated once the script has completed in it, so frames replaced by the script
+   * are injected in their new state.
+   *
+   * @param driver WebDriver instance to inject into
+   * @param script The script to inject
+   * @param disableIframeTesting Whether or not to inject into iframes
+   * @return the number of WebDriver calls made
+   */
+  public static int injectFrameTreeAsync(
+      final WebDriver driver, final String script, boolean disableIframeTesting) {
+    driver.switchTo().defaultContent();
+    return 1 + injectFrameSubtreeAsync(driver, script, disableIframeTesting);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int injectFrameSubtree(
+      final WebDriver driver,
+      final String script,
+      boolean disableIframeTesting,
+      Consumer<WebDriver> injectCB,
+      boolean doNotInjectAxe) {
+    String inject = doNotInjectAxe ? null : script;
+    StringBuilder command = new StringBuilder();
+    if (inject != null) {
+      command.append("(function () {").append(inject).append("\n}).call(window);");
+    }
+    if (disableIframeTesting) {
+      command.append("return [];");
+    } else {
+      command.append(FRAME_TREE_WALK).append("visit(window, []);").append("return boundaries;");
+    }
+    List<List<Number>> boundaries =
+        (List<List<Number>>)
+            executeScript(driver, command.toString(), inject, injectCB != null);
+    if (injectCB != null) {
+      injectCB.accept(driver);
+    }
+
+    int calls = 1;
+    for (List<Number> path : boundaries) {
+      int switched = 0;
+      try {
+        for (Number index : path) {
+          calls++;
+          driver.switchTo().frame(index.intValue());
+          switched++;
+        }
+        calls += injectFrameSubtree(driver, script, disableIframeTesting, injectCB, doNotInjectAxe);
+      } catch (Exception e) {
+        // Ignore all errors except those caused by the injected javascript itself
+        if (e instanceof JavascriptException) {
+          throw e;
+        }
+      } finally {
+        calls += switchToParentFrames(driver, switched);
+      }
+    }
+    return calls;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int injectFrameSubtreeAsync(
+      final WebDriver driver, final String script, boolean disableIframeTesting) {
+    StringBuilder command = new StringBuilder();
+    command
+        .append("const callback = arguments[arguments.length - 1];")
+        .append(FRAME_TREE_ASYNC_WALK)
+        .append("new Promise(resolve => (function () {")
+        .append(script)
+        .append("\n}).call(window, resolve))");
+    if (disableIframeTesting) {
+      command.append(".then(() => [])");
+    } else {
+      command.append(".then(() => visit(window, [])).then(() => boundaries)");
+    }
+    command.append(".then(callback);");
+    List<List<Number>> boundaries =
+        (List<List<Number>>) executeAsyncScript(driver, command.toString(), script, false);
+
+    int calls = 1;
+    for (List<Number> path : boundaries) {
+      int switched = 0;
+      try {
+        for (Number index : path) {
+          calls++;
+          driver.switchTo().frame(index.intValue());
+          switched++;
+        }
+        calls += injectFrameSubtreeAsync(driver, script, disableIframeTesting);
+      } catch (Exception e) {
+        // Ignore all errors except those caused by the injected javascript itself
+        if (e instanceof JavascriptException) {
+          throw e;
+        }
+      } finally {
+        calls += switchToParentFrames(driver, switched);
+      }
+    }
+    return calls;
+  }
+
+  private static int switchToParentFrames(final WebDriver driver, final int levels) {
+    for (int i = 0; i < levels; i++) {
+      driver.switchTo().parentFrame();
+    }
+    return levels;
+  }
+
   /**
    * Recursively find frames and inject a script into them. If a frame errors when injecting due to
    * not being displayed, the error is ignored.
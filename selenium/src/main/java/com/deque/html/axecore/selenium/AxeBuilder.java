@@ -13,15 +13,26 @@
 package com.deque.html.axecore.selenium;
 
 import com.deque.html.axecore.args.*;
+import com.deque.html.axecore.baseline.BaselineStore;
+import com.deque.html.axecore.crawl.AdaptiveRuleSelector;
+import com.deque.html.axecore.crawl.RuleTimingAggregator;
 import com.deque.html.axecore.extensions.WebDriverExtensions;
 import com.deque.html.axecore.extensions.WebDriverInjectorExtensions;
+import com.deque.html.axecore.partial.PartialResultBuffer;
 import com.deque.html.axecore.providers.EmbeddedResourceAxeProvider;
 import com.deque.html.axecore.providers.IAxeScriptProvider;
 import com.deque.html.axecore.results.FrameContext;
 import com.deque.html.axecore.results.Results;
 import com.deque.html.axecore.results.Rule;
+import com.deque.html.axecore.results.SkippedFrame;
+import com.deque.html.axecore.scripts.PerformanceTimerScript;
+import com.deque.html.axecore.scripts.QuiescenceScript;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -29,15 +40,19 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
-import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.openqa.selenium.InvalidArgumentException;
 import org.openqa.selenium.JavascriptException;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.chromium.HasCdp;
 
 /**
  * Fluent style builder for invoking aXe. Instantiate a new Builder and configure testing with the
@@ -66,6 +81,51 @@ public class AxeBuilder {
   private Consumer<WebDriver> injectAxeCallback;
   private boolean doNotInjectAxe = false;
 
+  /** results of previous scans keyed by DOM fingerprint, null unless enabled. */
+  private ResultCache resultCache;
+
+  /** tracks mutations between scans, null unless incremental scans are enabled. */
+  private IncrementalScan incrementalScan;
+
+  /** whether to scan frames through the Chrome DevTools Protocol when the driver supports it. */
+  private boolean useDevTools = false;
+
+  /** the isolated world with axe in it of each frame scanned through DevTools, by frame id. */
+  private final Map<String, Integer> devToolsWorlds = new ConcurrentHashMap<>();
+
+  /** whether to scan frames through WebDriver BiDi when the driver has a BiDi session. */
+  private boolean useBiDi = false;
+
+  /** whether legacy injection discovers the frame tree in one script call per document. */
+  private boolean frameTreeInjection = false;
+
+  /** regions scanned once per crawl, null to scan every page in full. */
+  private SharedRegionCache sharedRegions;
+
+  /** accepted violations to leave out of the results, null to report every violation. */
+  private BaselineStore baseline;
+
+  /** narrows the rules of each page scan to those that apply to its template, null to run all. */
+  private AdaptiveRuleSelector adaptiveRules;
+
+  /** how long axe may run in each child frame, null for no limit. */
+  private Duration frameTimeout;
+
+  /** how long the frames of a scan may take altogether, null for no limit. */
+  private Duration scanBudget;
+
+  /** the characters of partial results held on the heap before they are written to disk. */
+  private long partialResultSpillThreshold = Long.MAX_VALUE;
+
+  /** whether to time each rule with the axe performance timer. */
+  private boolean performanceTimer;
+
+  /** how long the page must stay unchanged before a scan starts, null to scan immediately. */
+  private Duration quietPeriod;
+
+  /** the longest time to wait for the page to settle before scanning anyway. */
+  private Duration quiescenceTimeout;
+
   /** timeout of how the the scan should run until an error occurs. */
   private int timeout = 30; // 30 seconds as default.
 
@@ -78,7 +138,7 @@ public class AxeBuilder {
           + "var context = typeof arguments[0] === 'string' ? JSON.parse(arguments[0]) : arguments[0];"
           + "context = context || document;"
           + "var options = JSON.parse(arguments[1]);"
-          + "axe.run(context, options).then(res => JSON.parse(JSON.stringify(res))).then(callback)";
+          + "axe.run(context, options).then(res => JSON.stringify(res)).then(callback)";
 
   public final String unsafeAllOrigins = "<unsafe_all_origins>";
   public final String sameOrigin = "<same_origin>";
@@ -107,18 +167,51 @@ public class AxeBuilder {
           + "};"
           + "Promise.all(iframes.map(replaceSandboxedIframe)).then(callback);";
 
-  private static String shadowSelectScript =
+  static String shadowSelectScript =
       "return axe.utils.shadowSelect(JSON.parse(arguments[0]))";
 
+  // An axe.runPartial that runs past its deadline keeps going in the frame, so the axe instance is
+  // marked as timed out with the run it was left with. The next run in the frame waits for that
+  // run to end first instead of hitting the "already running" guard of axe, which matters when the
+  // page owns its axe and it is not injected again.
+  private static final String awaitAbandonedRun =
+      "const abandoned = window.axe._timedOut ? window.axe._abandonedRun : null;"
+          + "const ready = abandoned ? abandoned.catch(() => {}).then(() => {"
+          + "  window.axe._timedOut = false;"
+          + "  window.axe._abandonedRun = null;"
+          + "}) : Promise.resolve();";
+
   private static String runPartialScript =
       "const context = typeof arguments[0] == 'string' ? JSON.parse(arguments[0]) : arguments[0];"
           + "const options = JSON.parse(arguments[1]);"
           + "const cb = arguments[arguments.length - 1];"
-          +
+          + awaitAbandonedRun
+          + "ready.then(() => window.axe.runPartial(context, options))"
           // JSON passthrough removes propereties that are set to undefined. Fixes an infinite loop
           // in
           // finishRun
-          "window.axe.runPartial(context, options).then(res => JSON.stringify(res)).then(cb);";
+          + ".then(res => JSON.stringify(res)).then(cb);";
+
+  // resolves with null when axe.runPartial does not finish within the deadline
+  private static String runPartialWithDeadlineScript =
+      "const context = typeof arguments[0] == 'string' ? JSON.parse(arguments[0]) : arguments[0];"
+          + "const options = JSON.parse(arguments[1]);"
+          + "const deadline = arguments[2];"
+          + "const cb = arguments[arguments.length - 1];"
+          + "const instance = window.axe;"
+          + awaitAbandonedRun
+          + "let timer;"
+          + "const run = ready.then(() => instance.runPartial(context, options));"
+          + "Promise.race(["
+          + "  run.then(res => JSON.stringify(res)),"
+          + "  new Promise(resolve => {"
+          + "    timer = setTimeout(() => {"
+          + "      instance._timedOut = true;"
+          + "      instance._abandonedRun = run;"
+          + "      resolve(null);"
+          + "    }, deadline);"
+          + "  })"
+          + "]).finally(() => clearTimeout(timer)).then(cb);";
 
   private static String frameContextScript =
       "const context = typeof arguments[0] == 'string' ? JSON.parse(arguments[0]) : arguments[0];"
@@ -129,7 +222,65 @@ public class AxeBuilder {
 
   private static String finishRunScript =
       "const partialResults = JSON.parse(window.partialResults || '[]');"
-          + "return axe.finishRun(partialResults);";
+          + "return Promise.resolve(axe.finishRun(partialResults))"
+          + ".then(res => JSON.stringify(res));";
+
+  private static final String waitForQuiescenceScript =
+      "const callback = arguments[arguments.length - 1];"
+          + "("
+          + QuiescenceScript.FUNCTION
+          + ")(arguments[0], arguments[1]).then(callback);";
+
+  private static final String countMatchesScript =
+      "return document.querySelectorAll(arguments[0]).length;";
+
+  // Structural hash of the included part of the DOM: element names, attributes (which covers
+  // classes and inline styles), text, open shadow roots and same-origin frame documents, plus the
+  // viewport size since layout affects several rules. Two independent 32 bit hashes keep collisions
+  // out of reach for a cache of this size.
+  private static String domFingerprintScript =
+      "let context;"
+          + "try { context = typeof arguments[0] == 'string' ? JSON.parse(arguments[0]) : arguments[0]; }"
+          + "catch (e) { context = {}; }"
+          + "let roots = [];"
+          + "if (context && Array.isArray(context.include)) {"
+          + "  for (const sel of context.include) {"
+          + "    const css = Array.isArray(sel) && sel.length === 1 ? sel[0] : sel;"
+          + "    if (typeof css !== 'string') { roots = null; break; }"
+          + "    roots.push(...document.querySelectorAll(css));"
+          + "  }"
+          + "}"
+          + "if (!roots || !roots.length) { roots = [document.documentElement]; }"
+          + "let h1 = 0x811c9dc5, h2 = 5381;"
+          + "const mix = s => {"
+          + "  for (let i = 0; i < s.length; i++) {"
+          + "    const c = s.charCodeAt(i);"
+          + "    h1 = Math.imul(h1 ^ c, 16777619);"
+          + "    h2 = (Math.imul(h2, 33) + c) | 0;"
+          + "  }"
+          + "};"
+          + "mix(window.innerWidth + 'x' + window.innerHeight);"
+          + "const stack = roots.slice().reverse();"
+          + "while (stack.length) {"
+          + "  const node = stack.pop();"
+          + "  if (node === null) { mix('>'); continue; }"
+          + "  if (node.nodeType === 3) { mix('\"' + node.data); continue; }"
+          + "  if (node.nodeType !== 1) { continue; }"
+          + "  mix('<' + node.nodeName);"
+          + "  for (const attr of node.attributes) { mix(' ' + attr.name + '=' + attr.value); }"
+          + "  stack.push(null);"
+          + "  const children = Array.from(node.childNodes);"
+          + "  if (node.shadowRoot) { children.unshift(...node.shadowRoot.childNodes); }"
+          + "  if (node.nodeName === 'IFRAME' || node.nodeName === 'FRAME') {"
+          + "    try {"
+          + "      const doc = node.contentDocument;"
+          + "      if (doc && doc.documentElement) { children.push(doc.documentElement); }"
+          + "    } catch (e) {}"
+          + "  }"
+          + "  for (let i = children.length - 1; i >= 0; i--) { stack.push(children[i]); }"
+          + "}"
+          + "return (window.axe ? window.axe.version : '') + ':'"
+          + "  + (h1 >>> 0).toString(16) + (h2 >>> 0).toString(16);";
 
   /**
    * get the default axe builder options.
@@ -173,6 +324,74 @@ public class AxeBuilder {
     return this;
   }
 
+  /**
+   * Limit how long axe may run in each child frame. A frame that takes longer is left out of the
+   * results and listed in {@link Results#getSkippedFrames()}, and the scan goes on with the other
+   * frames instead of failing. Frames are scanned through WebDriver frame switching while a time
+   * limit is set.
+   *
+   * @param frameTimeout the longest time axe may run in one frame
+   * @return an Axe Builder object
+   */
+  public AxeBuilder withFrameTimeout(final Duration frameTimeout) {
+    if (frameTimeout == null || frameTimeout.isNegative() || frameTimeout.isZero()) {
+      throw new IllegalArgumentException("frameTimeout must be a positive duration");
+    }
+    this.frameTimeout = frameTimeout;
+    return this;
+  }
+
+  /**
+   * Limit how long the frames of a scan may take altogether. The top-level document is always
+   * scanned; once the budget is spent, the remaining frames are left out of the results and listed
+   * in {@link Results#getSkippedFrames()}, and the results are built from the frames scanned so
+   * far. One budget covers every scan of an analysis, including the region and subtree scans of
+   * the shared region and incremental modes. Frames are scanned through WebDriver frame switching
+   * while a time limit is set.
+   *
+   * @param scanBudget the longest time the whole scan may take
+   * @return an Axe Builder object
+   */
+  public AxeBuilder withScanBudget(final Duration scanBudget) {
+    if (scanBudget == null || scanBudget.isNegative() || scanBudget.isZero()) {
+      throw new IllegalArgumentException("scanBudget must be a positive duration");
+    }
+    this.scanBudget = scanBudget;
+    return this;
+  }
+
+  /**
+   * Write the partial results of a scan to a temporary file once they add up to more than the given
+   * number of characters, instead of holding them on the heap until they are sent to axe.finishRun.
+   * The results are streamed back from the file in chunks, and the file is deleted at the end of
+   * the scan. Only applies to axe versions with axe.runPartial.
+   *
+   * @param threshold the characters of partial results to hold on the heap
+   * @return an Axe Builder object
+   */
+  public AxeBuilder withPartialResultSpillThreshold(final long threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("threshold must not be negative");
+    }
+    this.partialResultSpillThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Time each rule with the axe performance timer. The time each rule took in every frame is summed
+   * into {@link Results#getRuleTimings()}, longest first, split into the phases axe measures:
+   * gathering the elements, matching them and running the checks. Timed scans go through WebDriver
+   * frame switching, and the timer adds some overhead of its own, so leave it off for regular
+   * scans.
+   *
+   * @param state whether to time each rule
+   * @return an Axe Builder object
+   */
+  public AxeBuilder withPerformanceTimer(final boolean state) {
+    this.performanceTimer = state;
+    return this;
+  }
+
   /**
    * The run options to be passed to axe. Refer to https://github.com/dequelabs/axe-core
    * /blob/develop/doc/API.md#options-parameter. Cannot not be used with WithRules(List<String>),
@@ -573,6 +792,148 @@ public class AxeBuilder {
     return this;
   }
 
+  /**
+   * Reuse the results of a previous scan when the page has not changed. Before scanning, a
+   * fingerprint of the included part of the DOM (elements, attributes, text, open shadow roots and
+   * same-origin frames) is computed in the browser; when it matches a previous scan with the same
+   * axe version, context and options, the cached results are returned without running axe.
+   * Changes made only through the CSSOM or inside cross-origin frames are not detected.
+   *
+   * @param maxEntries the number of results to keep; the least recently used results are evicted
+   *     first
+   * @return an Axe Builder
+   */
+  public AxeBuilder withResultCache(final int maxEntries) {
+    resultCache = new ResultCache(maxEntries);
+    return this;
+  }
+
+  /**
+   * Run axe in every frame through the Chrome DevTools Protocol instead of switching WebDriver into
+   * each frame. Only applies to Chromium based drivers that expose the protocol (such as
+   * ChromeDriver and EdgeDriver) when this builder injects axe itself, without a custom axe
+   * injection callback. The WebDriver path is used otherwise, and for pages with frames that are
+   * out of reach of the page session, such as cross-origin frames running in their own process.
+   *
+   * @param state whether to use the DevTools protocol when available
+   * @return an Axe Builder
+   */
+  public AxeBuilder useDevToolsProtocol(final boolean state) {
+    useDevTools = state;
+    return this;
+  }
+
+  /**
+   * Inject into frames by discovering the frame tree with one script call, for axe versions before
+   * 4.3 and for the sandbox removal of {@link #withoutIframeSandboxes()}. Same-origin frames are
+   * injected from their parent document, so WebDriver only switches into cross-origin frames (and
+   * into every frame when a custom injection callback is set), instead of looking up and switching
+   * into the frames of every document.
+   *
+   * @param state whether to discover the frame tree with one script call
+   * @return an Axe Builder
+   */
+  public AxeBuilder useFrameTreeInjection(final boolean state) {
+    frameTreeInjection = state;
+    return this;
+  }
+
+  /**
+   * Run axe in every frame through WebDriver BiDi instead of switching WebDriver into each frame.
+   * The frames are enumerated once and scanned concurrently, which works for cross-origin frames
+   * too. Only applies to drivers created with a BiDi session (the "webSocketUrl" capability) when
+   * this builder injects axe itself, without a custom axe injection callback; the WebDriver path is
+   * used otherwise. When both this and {@link #useDevToolsProtocol(boolean)} are enabled, the
+   * DevTools protocol is tried first.
+   *
+   * @param state whether to use WebDriver BiDi when available
+   * @return an Axe Builder
+   */
+  public AxeBuilder useWebDriverBiDi(final boolean state) {
+    useBiDi = state;
+    return this;
+  }
+
+  /**
+   * Scan regions shared by the pages of a crawl only once. Before each whole page scan, a
+   * fingerprint of every shared region found on the page is computed in the browser. Regions are
+   * always excluded from the page scan; a region is scanned on its own when no results are cached
+   * for its fingerprint, and the cached region results are added to the page results otherwise.
+   * Rules that depend on the whole page, such as landmark and duplicate-id rules, are evaluated on
+   * the page and the regions separately.
+   *
+   * @param cache the shared regions and their cached results, kept for the whole crawl
+   * @return an Axe Builder
+   */
+  public AxeBuilder withSharedRegions(final SharedRegionCache cache) {
+    sharedRegions = cache;
+    return this;
+  }
+
+  /**
+   * Run only the rules that applied to earlier scans of the same page template. Before each whole
+   * page scan, the rules are narrowed by the selector from the current url, and the results of the
+   * scan are recorded in it; rules that were inapplicable in the last scans of the template are
+   * left out of the scan and of its results, and the template is scanned with every rule again now
+   * and then to refresh the statistics.
+   *
+   * @param selector the rule statistics of each template, kept for the whole crawl
+   * @return an Axe Builder
+   */
+  public AxeBuilder withAdaptiveRuleSelection(final AdaptiveRuleSelector selector) {
+    adaptiveRules = selector;
+    return this;
+  }
+
+  /**
+   * Leave violations accepted in a baseline out of the results. Each violation node is looked up
+   * in the memory-mapped store by its {@link com.deque.html.axecore.baseline.ViolationFingerprint}
+   * as soon as the results are parsed, so only new violations are reported.
+   *
+   * @param store the accepted violations, or null to report every violation
+   * @return an Axe Builder
+   */
+  public AxeBuilder withBaseline(final BaselineStore store) {
+    baseline = store;
+    return this;
+  }
+
+  /**
+   * Wait for the page to settle before each scan instead of sleeping for a fixed time. The scan
+   * starts once the page has had no DOM mutations, no pending fetch or XMLHttpRequest requests and
+   * no running finite animations for the quiet period, or once the timeout is reached.
+   *
+   * @param quietPeriod how long the page must stay unchanged
+   * @param timeout the longest time to wait before scanning anyway
+   * @return an Axe Builder
+   */
+  public AxeBuilder waitForQuiescence(final Duration quietPeriod, final Duration timeout) {
+    if (quietPeriod == null || timeout == null || quietPeriod.isNegative() || timeout.isNegative()) {
+      throw new IllegalArgumentException("quietPeriod and timeout must be non-negative durations");
+    }
+    this.quietPeriod = quietPeriod;
+    this.quiescenceTimeout = timeout;
+    return this;
+  }
+
+  /**
+   * Rescan only what changed since the previous scan of the page. After a full scan, a
+   * MutationObserver records which subtrees of the page are mutated; the next scan only runs axe
+   * over those subtrees and merges the results into the previous ones. A full scan is made instead
+   * on the first scan, after a navigation, when the document body itself was mutated, or when
+   * more than {@code maxMutatedSubtrees} subtrees were mutated. Only applies to whole page scans
+   * (excludes are kept, but no include may be set). Results for elements outside the mutated
+   * subtrees are carried over from the previous scan, including those of rules that depend on
+   * the rest of the page, such as duplicate-id or landmark rules.
+   *
+   * @param maxMutatedSubtrees the number of mutated subtrees above which a full scan is made
+   * @return an Axe Builder
+   */
+  public AxeBuilder withIncrementalScan(final int maxMutatedSubtrees) {
+    incrementalScan = new IncrementalScan(maxMutatedSubtrees);
+    return this;
+  }
+
   /**
    * Set a custom method of injecting axe into the page. Will not use the default injection if set.
    *
@@ -601,7 +962,7 @@ public class AxeBuilder {
    * @return An axe results document
    */
   public Results analyze(final WebDriver webDriver, final WebElement... context) {
-    return analyzeRawContext(webDriver, context);
+    return analyzeRawContext(webDriver, context, buildProfile());
   }
 
   /**
@@ -611,10 +972,76 @@ public class AxeBuilder {
    * @return An axe results document
    */
   public Results analyze(final WebDriver webDriver) {
+    return analyze(webDriver, buildProfile());
+  }
+
+  /**
+   * Run axe against the entire page with a prebuilt profile. The context, options, legacy mode and
+   * iframe testing settings come from the profile, which is not serialized again; the other
+   * settings (such as the axe script provider and the timeout) come from this builder. A profile
+   * can be shared between threads, each scanning with its own builder.
+   *
+   * @param webDriver for the page to be scanned
+   * @param profile the context, options and frame settings of the scan
+   * @return An axe results document
+   */
+  public Results analyze(final WebDriver webDriver, final ScanProfile profile) {
+    validateNotNullParameter(profile);
+    if (adaptiveRules == null) {
+      return analyzeRawContext(webDriver, profile.getContextJson(), profile);
+    }
+    validateNotNullParameter(webDriver);
+    String url = webDriver.getCurrentUrl();
+    List<String> rules = adaptiveRules.selectRules(url);
+    ScanProfile scanProfile = profile;
+    if (rules != null) {
+      AxeRunOnlyOptions runOnly = new AxeRunOnlyOptions();
+      runOnly.setType("rule");
+      runOnly.setValues(rules);
+      scanProfile =
+          new ScanProfile(
+              profile.getContextJson(),
+              setOption(profile.getOptionsJson(), "runOnly", runOnly),
+              profile.isLegacyMode(),
+              profile.isIframeTestingDisabled(),
+              profile.isPerformanceTimer());
+    }
+    Results results = analyzeRawContext(webDriver, scanProfile.getContextJson(), scanProfile);
+    if (!results.isErrored()) {
+      adaptiveRules.record(url, results);
+    }
+    return results;
+  }
+
+  /**
+   * Serialize the current context, options, legacy mode and iframe testing settings into an
+   * immutable profile, to run any number of scans with {@link #analyze(WebDriver, ScanProfile)}.
+   * Later changes to this builder do not affect the profile.
+   *
+   * @return the profile
+   */
+  public ScanProfile buildProfile() {
     boolean runContextHasData =
         this.runContext.getInclude() != null || this.runContext.getExclude() != null;
     String rawContext = runContextHasData ? AxeReporter.serialize(runContext) : "{ 'exclude': [] }";
-    return analyzeRawContext(webDriver, rawContext);
+    String rawOptions =
+        getOptions().equals("{}") ? AxeReporter.serialize(runOptions) : getOptions();
+    if (performanceTimer) {
+      rawOptions = setOption(rawOptions, "performanceTimer", true);
+    }
+    return new ScanProfile(
+        rawContext, rawOptions, legacyMode, disableIframeTesting, performanceTimer);
+  }
+
+  /** sets an option in serialized run options, replacing its value if it is set. */
+  private String setOption(final String rawOptions, final String name, final Object value) {
+    try {
+      ObjectNode options = (ObjectNode) objectMapper.readTree(rawOptions);
+      options.set(name, objectMapper.valueToTree(value));
+      return AxeReporter.serialize(options);
+    } catch (JsonProcessingException | ClassCastException e) {
+      throw new RuntimeException("Unable to set the " + name + " option in the run options", e);
+    }
   }
 
   /**
@@ -625,10 +1052,7 @@ public class AxeBuilder {
    * @return An axe results document
    */
   public Results analyze(final WebDriver webDriver, boolean injectAxe) {
-    boolean runContextHasData =
-        this.runContext.getInclude() != null || this.runContext.getExclude() != null;
-    String rawContext = runContextHasData ? AxeReporter.serialize(runContext) : "{ 'exclude': [] }";
-    return analyzeRawContext(webDriver, rawContext);
+    return analyze(webDriver, buildProfile());
   }
 
   /**
@@ -637,15 +1061,26 @@ public class AxeBuilder {
    *
    * @param rawContextArg The value to pass as-is to scan.js to use as the axe.run "context"
    *     argument
+   * @param profile the options and frame settings of the scan
    * @return an Axe Result
    */
-  private Results analyzeRawContext(final WebDriver webDriver, final Object rawContextArg) {
+  private Results analyzeRawContext(
+      final WebDriver webDriver, final Object rawContextArg, final ScanProfile profile) {
     validateNotNullParameter(webDriver);
 
+    if (quietPeriod != null) {
+      awaitQuiescence(webDriver);
+    }
+
     if (noSandbox) {
       try {
-        WebDriverInjectorExtensions.injectAsync(
-            webDriver, sandboxBusterScript, disableIframeTesting);
+        if (frameTreeInjection) {
+          WebDriverInjectorExtensions.injectFrameTreeAsync(
+              webDriver, sandboxBusterScript, profile.isIframeTestingDisabled());
+        } else {
+          WebDriverInjectorExtensions.injectAsync(
+              webDriver, sandboxBusterScript, profile.isIframeTestingDisabled());
+        }
       } catch (Exception e) {
         throw new RuntimeException("Error when removing sandbox from iframes", e);
       }
@@ -653,6 +1088,238 @@ public class AxeBuilder {
 
     injectAxe(webDriver);
 
+    String cacheKey = null;
+    if (resultCache != null && rawContextArg instanceof String) {
+      cacheKey = getResultCacheKey(webDriver, (String) rawContextArg, profile);
+      Results cached = resultCache.get(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    // the incremental and shared region modes apply to scans of the whole page
+    List<Object> pageExcludes =
+        (incrementalScan != null || sharedRegions != null) && rawContextArg instanceof String
+            ? readPageExcludes(profile.getContextJson())
+            : null;
+    // one state for every scan of this analysis, so they share the scan budget, and the frames
+    // skipped and rule timings of each scan are reported on the merged results
+    ScanState state = new ScanState(frameTimeout, scanBudget);
+    Results results;
+    if (incrementalScan != null && pageExcludes != null) {
+      results = analyzeIncrementally(webDriver, pageExcludes, profile, state);
+    } else if (sharedRegions != null && pageExcludes != null) {
+      results = analyzeWithSharedRegions(webDriver, pageExcludes, profile, state);
+    } else {
+      results = runAnalysis(webDriver, rawContextArg, profile, state);
+    }
+    // best-effort results, with frames left out, are not cached
+    if (cacheKey != null && isComplete(results)) {
+      resultCache.put(cacheKey, results);
+    }
+    return results;
+  }
+
+  /**
+   * Reads the excludes of a serialized context.
+   *
+   * @return the excludes, or null when the context includes only part of the page
+   */
+  private List<Object> readPageExcludes(final String rawContext) {
+    JsonNode context;
+    try {
+      context =
+          objectMapper.reader().with(JsonReadFeature.ALLOW_SINGLE_QUOTES).readTree(rawContext);
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+    if (context == null || !context.isObject() || context.hasNonNull("include")) {
+      return null;
+    }
+    List<Object> excludes = new ArrayList<>();
+    JsonNode exclude = context.get("exclude");
+    if (exclude != null && exclude.isArray()) {
+      for (JsonNode selector : exclude) {
+        excludes.add(objectMapper.convertValue(selector, Object.class));
+      }
+    } else if (exclude != null && !exclude.isNull()) {
+      excludes.add(objectMapper.convertValue(exclude, Object.class));
+    }
+    return excludes;
+  }
+
+  /**
+   * Waits in the browser for the page to settle, raising the script timeout above the quiescence
+   * timeout for the duration of the wait.
+   */
+  private void awaitQuiescence(final WebDriver webDriver) {
+    WebDriver.Timeouts timeouts = webDriver.manage().timeouts();
+    Duration waitTimeout = quiescenceTimeout.plusSeconds(5);
+    Duration scriptTimeout;
+    boolean isSelenium3 = false;
+    try {
+      scriptTimeout = timeouts.getScriptTimeout();
+      timeouts.scriptTimeout(waitTimeout);
+    } catch (NoSuchMethodError noSuchMethodError) {
+      // Selenium 3 cannot read the script timeout; assume the WebDriver spec default of 30 seconds
+      // @see https://github.com/dequelabs/axe-core-maven-html/issues/479
+      isSelenium3 = true;
+      scriptTimeout = Duration.ofSeconds(30);
+      timeouts.setScriptTimeout(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    try {
+      WebDriverInjectorExtensions.executeAsyncScript(
+          webDriver, waitForQuiescenceScript, quietPeriod.toMillis(), quiescenceTimeout.toMillis());
+    } finally {
+      if (isSelenium3) {
+        timeouts.setScriptTimeout(scriptTimeout.getSeconds(), TimeUnit.SECONDS);
+      } else {
+        timeouts.scriptTimeout(scriptTimeout);
+      }
+    }
+  }
+
+  /**
+   * Scans only the subtrees mutated since the previous scan and merges their results into the
+   * previous results, falling back to a full scan when that is not possible. Results with frames
+   * left out are not kept as the base of the next scan.
+   */
+  private Results analyzeIncrementally(
+      final WebDriver webDriver,
+      final List<Object> pageExcludes,
+      final ScanProfile profile,
+      final ScanState state) {
+    Results previous = incrementalScan.getPrevious();
+    List<String> mutatedSubtrees =
+        previous == null ? null : incrementalScan.collectMutatedSubtrees(webDriver);
+
+    if (mutatedSubtrees == null) {
+      // observe before scanning so that mutations made during the scan are picked up next time
+      incrementalScan.installObserver(webDriver);
+      Results results = runAnalysis(webDriver, profile.getContextJson(), profile, state);
+      incrementalScan.setPrevious(isComplete(results) ? results : null);
+      return results;
+    }
+    if (mutatedSubtrees.isEmpty()) {
+      return ResultsMerger.copy(previous);
+    }
+
+    AxeRunContext subtreeContext = new AxeRunContext();
+    for (String selector : mutatedSubtrees) {
+      subtreeContext.setInclude(selector);
+    }
+    for (Object exclude : pageExcludes) {
+      subtreeContext.setExclude(exclude);
+    }
+    Results partial =
+        runAnalysis(webDriver, AxeReporter.serialize(subtreeContext), profile, state);
+    if (partial.isErrored()) {
+      incrementalScan.setPrevious(null);
+      return partial;
+    }
+
+    Set<String> affectedTargets = incrementalScan.findAffectedTargets(webDriver, mutatedSubtrees);
+    Results results = ResultsMerger.replaceSubtrees(previous, partial, affectedTargets);
+    incrementalScan.setPrevious(isComplete(results) ? results : null);
+    return results;
+  }
+
+  /**
+   * Scans the page without its shared regions, and adds the results of each region, scanning only
+   * the regions whose fingerprint has no cached results. Region results with frames left out are
+   * not cached.
+   */
+  private Results analyzeWithSharedRegions(
+      final WebDriver webDriver,
+      final List<Object> pageExcludes,
+      final ScanProfile profile,
+      final ScanState state) {
+    String rawOptions = profile.getOptionsJson();
+    AxeRunContext pageContext = new AxeRunContext();
+    for (Object exclude : pageExcludes) {
+      pageContext.setExclude(exclude);
+    }
+
+    List<Results> regionResults = new ArrayList<>();
+    for (String selector : sharedRegions.getSelectors()) {
+      Number matches =
+          (Number) WebDriverInjectorExtensions.executeScript(webDriver, countMatchesScript, selector);
+      if (matches.intValue() == 0) {
+        continue;
+      }
+      AxeRunContext regionContext = new AxeRunContext();
+      regionContext.setInclude(selector);
+      for (Object exclude : pageExcludes) {
+        regionContext.setExclude(exclude);
+      }
+      String rawRegionContext = AxeReporter.serialize(regionContext);
+      String fingerprint =
+          (String)
+              WebDriverInjectorExtensions.executeScript(
+                  webDriver, domFingerprintScript, rawRegionContext);
+      String key = fingerprint + "\n" + rawRegionContext + "\n" + rawOptions;
+
+      Results region = sharedRegions.get(key);
+      if (region == null) {
+        region = runAnalysis(webDriver, rawRegionContext, profile, state);
+        if (region.isErrored()) {
+          return region;
+        }
+        if (isComplete(region)) {
+          sharedRegions.put(key, region);
+        }
+      }
+      regionResults.add(region);
+      pageContext.setExclude(selector);
+    }
+
+    // scanned last, so it carries the frames skipped and rule timings of the region scans too
+    Results results = runAnalysis(webDriver, AxeReporter.serialize(pageContext), profile, state);
+    if (results.isErrored()) {
+      return results;
+    }
+    for (Results region : regionResults) {
+      results = ResultsMerger.append(results, region);
+    }
+    return results;
+  }
+
+  /**
+   * gets whether results can be kept for later scans: they are not errored and no frame was left
+   * out of them, or of the scans before them in the same analysis.
+   */
+  private static boolean isComplete(final Results results) {
+    return !results.isErrored() && results.getSkippedFrames() == null;
+  }
+
+  /**
+   * Builds the result cache key for the current page: its url and DOM fingerprint (which includes
+   * the axe version) followed by the serialized context and options. The url is part of the key
+   * because the results carry it.
+   */
+  private String getResultCacheKey(
+      final WebDriver webDriver, final String rawContext, final ScanProfile profile) {
+    String fingerprint =
+        (String)
+            WebDriverInjectorExtensions.executeScript(webDriver, domFingerprintScript, rawContext);
+    return webDriver.getCurrentUrl()
+        + "\n"
+        + fingerprint
+        + "\n"
+        + rawContext
+        + "\n"
+        + profile.getOptionsJson();
+  }
+
+  /**
+   * Runs axe on a page that axe has already been injected into, choosing between the runPartial
+   * and the legacy axe.run paths.
+   */
+  private Results runAnalysis(
+      final WebDriver webDriver,
+      final Object rawContextArg,
+      final ScanProfile profile,
+      final ScanState state) {
     boolean hasRunPartial =
         (Boolean) WebDriverInjectorExtensions.executeScript(webDriver, hasRunPartialScript);
 
@@ -662,7 +1329,7 @@ public class AxeBuilder {
     // as per the WebDriver spec: https://www.w3.org/TR/webdriver/#dfn-timeouts-configuration
     Duration pageTimeout;
     boolean isSelenium3 = false;
-    if (hasRunPartial && !legacyMode) {
+    if (hasRunPartial && !profile.isLegacyMode()) {
       try {
         webDriver.manage().timeouts().scriptTimeout(Duration.ofSeconds(timeout));
         pageTimeout = webDriver.manage().timeouts().getPageLoadTimeout();
@@ -680,7 +1347,7 @@ public class AxeBuilder {
         webDriver.manage().timeouts().pageLoadTimeout(1, TimeUnit.SECONDS);
       }
       try {
-        return analyzePost43x(webDriver, rawContextArg);
+        return analyzePost43x(webDriver, rawContextArg, profile, state);
       } finally {
         if (isSelenium3) {
           webDriver.manage().timeouts().pageLoadTimeout(pageTimeout.getSeconds(), TimeUnit.SECONDS);
@@ -689,7 +1356,7 @@ public class AxeBuilder {
         }
       }
     } else {
-      return analyzePre43x(webDriver, rawContextArg);
+      return analyzePre43x(webDriver, rawContextArg, profile, state);
     }
   }
 
@@ -706,83 +1373,109 @@ public class AxeBuilder {
     return results;
   }
 
-  private ArrayList<String> runPartialRecursive(
+  private void runPartialRecursive(
       final WebDriver webDriver,
-      final Object options,
+      final ScanProfile profile,
       final Object context,
       final boolean isTopLevel,
-      final Stack<Object> frameStack) {
+      final Stack<Object> frameStack,
+      final Stack<Object> frameHandles,
+      final PartialResultBuffer partialResults,
+      final ScanState state) {
     if (!isTopLevel) {
       injectAxe(webDriver);
     }
     String windowHandle = webDriver.getWindowHandle();
 
-    ArrayList<String> partialResults = new ArrayList<String>();
+    String options = profile.getOptionsJson();
+    int frameStart = partialResults.size();
     try {
       Object fcResponse =
           WebDriverInjectorExtensions.executeScript(webDriver, frameContextScript, context);
       ArrayList<FrameContext> contexts =
           objectMapper.convertValue(fcResponse, new TypeReference<ArrayList<FrameContext>>() {});
 
-      String resResponse =
-          (String)
-              WebDriverInjectorExtensions.executeAsyncScript(
-                  webDriver, runPartialScript, context, options, frameStack);
+      String resResponse;
+      if (isTopLevel || !state.hasTimeLimit()) {
+        resResponse =
+            (String)
+                WebDriverInjectorExtensions.executeAsyncScript(
+                    webDriver, runPartialScript, context, options, frameStack);
+      } else {
+        ScanState.FrameLimit limit = state.frameLimit();
+        resResponse =
+            (String)
+                WebDriverInjectorExtensions.executeAsyncScript(
+                    webDriver, runPartialWithDeadlineScript, context, options, limit.getMillis());
+        if (resResponse == null) {
+          skipFrame(frameStack, limit.getReason(), state);
+          partialResults.add(null);
+          return;
+        }
+      }
       partialResults.add(resResponse);
-      if (disableIframeTesting) {
-        return partialResults;
+      if (profile.isPerformanceTimer()) {
+        readRuleTimings(webDriver, state.getRuleTimings());
+      }
+      if (profile.isIframeTestingDisabled()) {
+        return;
       }
 
       for (FrameContext fc : contexts) {
+        boolean pushed = false;
+        int childStart = partialResults.size();
         try {
           Object frameContext = AxeReporter.serialize(fc.getFrameContext());
           Object frameSelector = AxeReporter.serialize(fc.getFrameSelector());
+          if (state.isBudgetSpent()) {
+            frameStack.push(frameSelector);
+            skipFrame(frameStack, SkippedFrame.SCAN_BUDGET, state);
+            frameStack.pop();
+            partialResults.add(null);
+            continue;
+          }
           Object frame =
               WebDriverInjectorExtensions.executeScript(
                   webDriver, shadowSelectScript, frameSelector);
 
-          if (frame instanceof String) {
-            webDriver.switchTo().frame((String) frame);
-          } else if (frame instanceof WebElement) {
-            webDriver.switchTo().frame((WebElement) frame);
-          } else if (frame instanceof Integer) {
-            webDriver.switchTo().frame((Integer) frame);
-          } else {
+          if (!switchToFrame(webDriver, frame)) {
             partialResults.add(null);
             continue;
           }
           frameStack.push(frameSelector);
-
-          ArrayList<String> morePartialResults =
-              runPartialRecursive(webDriver, options, frameContext, false, frameStack);
-          partialResults.addAll(morePartialResults);
+          frameHandles.push(frame);
+          pushed = true;
+
+          runPartialRecursive(
+              webDriver,
+              profile,
+              frameContext,
+              false,
+              frameStack,
+              frameHandles,
+              partialResults,
+              state);
         } catch (org.openqa.selenium.TimeoutException e) {
-          webDriver.switchTo().window(windowHandle);
-          for (Object frameSelector : frameStack) {
-            Object frame =
-                WebDriverInjectorExtensions.executeScript(
-                    webDriver, shadowSelectScript, frameSelector);
-            if (frame instanceof String) {
-              webDriver.switchTo().frame((String) frame);
-            } else if (frame instanceof WebElement) {
-              webDriver.switchTo().frame((WebElement) frame);
-            } else if (frame instanceof Integer) {
-              webDriver.switchTo().frame((Integer) frame);
-            }
+          if (pushed) {
+            frameStack.pop();
+            frameHandles.pop();
           }
+          webDriver.switchTo().window(windowHandle);
+          restoreFrames(webDriver, frameStack, frameHandles);
+          partialResults.truncate(childStart);
           partialResults.add(null);
           continue;
         }
         frameStack.pop();
+        frameHandles.pop();
       }
-      return partialResults;
     } catch (RuntimeException e) {
       if (isTopLevel) {
         throw e;
       } else {
-        ArrayList<String> ret = new ArrayList<String>();
-        ret.add(null);
-        return ret;
+        // the frame and the frames inside it are left out together
+        partialResults.truncate(frameStart);
+        partialResults.add(null);
       }
     } finally {
       if (!isTopLevel) {
@@ -791,38 +1484,158 @@ public class AxeBuilder {
     }
   }
 
+  /** adds the rule timings measured in the current frame to those of the scan. */
+  private static void readRuleTimings(
+      final WebDriver webDriver, final RuleTimingAggregator ruleTimings) {
+    Object measures =
+        WebDriverInjectorExtensions.executeScript(
+            webDriver, "return (" + PerformanceTimerScript.FUNCTION + ")();");
+    if (measures instanceof String) {
+      ruleTimings.addMeasures((String) measures);
+    }
+  }
+
+  /** records the frame at the top of the stack as skipped, with its selector from the page. */
+  private void skipFrame(
+      final Stack<Object> frameStack, final String reason, final ScanState state) {
+    List<Object> path = new ArrayList<>();
+    for (Object selector : frameStack) {
+      try {
+        path.add(objectMapper.readValue((String) selector, Object.class));
+      } catch (JsonProcessingException e) {
+        path.add(selector);
+      }
+    }
+    state.skipFrame(new SkippedFrame(path, reason));
+  }
+
   /**
-   * Serializes and chunks partial results to send to the browser. This is done because webdriver
-   * has a maximum size for arguments.
+   * Switches into a frame found by the shadow select script.
+   *
+   * @return false when the script did not find a frame
    */
-  private void sendPartialResults(final WebDriver webDriver, ArrayList<String> partialResults) {
-    // partialResults is a list of result objects, so we can build a JSON array easily with
-    // appending strings
-    StringJoiner sj = new StringJoiner(",", "[", "]");
-    for (String pr : partialResults) {
-      sj.add(pr);
+  static boolean switchToFrame(final WebDriver webDriver, final Object frame) {
+    if (frame instanceof String) {
+      webDriver.switchTo().frame((String) frame);
+    } else if (frame instanceof WebElement) {
+      webDriver.switchTo().frame((WebElement) frame);
+    } else if (frame instanceof Integer) {
+      webDriver.switchTo().frame((Integer) frame);
+    } else {
+      return false;
     }
-    String partialResString = sj.toString();
-    int sizeLimit = 20_000_000;
-    while (!partialResString.isEmpty()) {
-      int chunkSize = sizeLimit;
-      if (chunkSize > partialResString.length()) {
-        chunkSize = partialResString.length();
+    return true;
+  }
+
+  /**
+   * Switches from the top-level document back into the innermost frame of the stack, through the
+   * frame handles resolved on the way down. A frame is only selected again when its handle went
+   * stale, so restoring the context after a timeout costs one switch per level instead of a script
+   * round-trip and a switch per level. The scaling test overrides it with that replay, to measure
+   * both.
+   */
+  void restoreFrames(
+      final WebDriver webDriver, final Stack<Object> frameStack, final Stack<Object> frameHandles) {
+    for (int level = 0; level < frameHandles.size(); level++) {
+      try {
+        switchToFrame(webDriver, frameHandles.get(level));
+      } catch (StaleElementReferenceException e) {
+        Object frame =
+            WebDriverInjectorExtensions.executeScript(
+                webDriver, shadowSelectScript, frameStack.get(level));
+        frameHandles.set(level, frame);
+        switchToFrame(webDriver, frame);
       }
-      String chunk = partialResString.substring(0, chunkSize);
-      partialResString = partialResString.substring(chunkSize);
-      WebDriverInjectorExtensions.executeScript(webDriver, storeChunk, chunk);
     }
   }
 
-  private Results analyzePost43x(final WebDriver webDriver, final Object rawContextArg) {
-    String rawOptionsArg =
-        getOptions().equals("{}") ? AxeReporter.serialize(runOptions) : getOptions();
+  /**
+   * Streams the partial results to the browser in chunks, as one JSON array. This is done because
+   * webdriver has a maximum size for arguments.
+   */
+  private void sendPartialResults(
+      final WebDriver webDriver, final PartialResultBuffer partialResults) {
+    partialResults.forEachChunk(
+        20_000_000,
+        chunk -> WebDriverInjectorExtensions.executeScript(webDriver, storeChunk, chunk));
+  }
+
+  private Results analyzePost43x(
+      final WebDriver webDriver,
+      final Object rawContextArg,
+      final ScanProfile profile,
+      final ScanState state) {
+    try (PartialResultBuffer partialResults =
+        new PartialResultBuffer(partialResultSpillThreshold)) {
+      return analyzePost43x(webDriver, rawContextArg, profile, state, partialResults);
+    }
+  }
+
+  private Results analyzePost43x(
+      final WebDriver webDriver,
+      final Object rawContextArg,
+      final ScanProfile profile,
+      final ScanState state,
+      final PartialResultBuffer partialResults) {
+    String rawOptionsArg = profile.getOptionsJson();
 
-    ArrayList<String> partialResults;
+    boolean scanned = false;
     try {
-      partialResults =
-          runPartialRecursive(webDriver, rawOptionsArg, rawContextArg, true, new Stack<Object>());
+      // the engines inject the builder's axe source into every frame themselves, so they are only
+      // used when the builder injects axe
+      if (useDevTools
+          && !state.hasTimeLimit()
+          && !profile.isPerformanceTimer()
+          && webDriver instanceof HasCdp
+          && !doNotInjectAxe
+          && injectAxeCallback == null
+          && rawContextArg instanceof String) {
+        List<String> devToolsResults =
+            new DevToolsFrameScanner(
+                    (HasCdp) webDriver,
+                    getAxeSource(),
+                    objectMapper,
+                    profile.isIframeTestingDisabled(),
+                    TimeUnit.SECONDS.toMillis(timeout),
+                    devToolsWorlds)
+                .scan((String) rawContextArg, rawOptionsArg);
+        if (devToolsResults != null) {
+          partialResults.addAll(devToolsResults);
+          scanned = true;
+        }
+      }
+      if (!scanned
+          && useBiDi
+          && !state.hasTimeLimit()
+          && !profile.isPerformanceTimer()
+          && webDriver instanceof HasBiDi
+          && !doNotInjectAxe
+          && injectAxeCallback == null
+          && rawContextArg instanceof String) {
+        List<String> biDiResults =
+            new BiDiFrameScanner(
+                    webDriver,
+                    getAxeSource(),
+                    objectMapper,
+                    profile.isIframeTestingDisabled(),
+                    TimeUnit.SECONDS.toMillis(timeout))
+                .scan((String) rawContextArg, rawOptionsArg);
+        if (biDiResults != null) {
+          partialResults.addAll(biDiResults);
+          scanned = true;
+        }
+      }
+      if (!scanned) {
+        runPartialRecursive(
+            webDriver,
+            profile,
+            rawContextArg,
+            true,
+            new Stack<Object>(),
+            new Stack<Object>(),
+            partialResults,
+            state);
+      }
     } catch (RuntimeException re) {
       if (re.getMessage().contains("Unable to inject axe script")) {
         throw re;
@@ -843,23 +1656,39 @@ public class AxeBuilder {
           e);
     }
     WebDriverExtensions.closeAboutBlank(webDriver, prevWindow);
-    Results res = objectMapper.convertValue(resResponse, Results.class);
-
-    return res;
+    Results results = parseResults(resResponse);
+    results.setSkippedFrames(state.getSkippedFrames());
+    if (profile.isPerformanceTimer()) {
+      results.setRuleTimings(state.getRuleTimings().getTimings());
+    }
+    return results;
   }
 
-  private Results analyzePre43x(final WebDriver webDriver, final Object rawContextArg) {
-    String rawOptionsArg =
-        getOptions().equals("{}") ? AxeReporter.serialize(runOptions) : getOptions();
+  private Results analyzePre43x(
+      final WebDriver webDriver,
+      final Object rawContextArg,
+      final ScanProfile profile,
+      final ScanState state) {
+    String rawOptionsArg = profile.getOptionsJson();
+    boolean disableIframeTesting = profile.isIframeTestingDisabled();
     Object[] rawArgs = new Object[] {rawContextArg, rawOptionsArg};
 
     try {
-      WebDriverInjectorExtensions.inject(
-          webDriver,
-          builderOptions.getScriptProvider().getScript(),
-          disableIframeTesting,
-          injectAxeCallback,
-          doNotInjectAxe);
+      if (frameTreeInjection) {
+        WebDriverInjectorExtensions.injectFrameTree(
+            webDriver,
+            builderOptions.getScriptProvider().getScript(),
+            disableIframeTesting,
+            injectAxeCallback,
+            doNotInjectAxe);
+      } else {
+        WebDriverInjectorExtensions.inject(
+            webDriver,
+            builderOptions.getScriptProvider().getScript(),
+            disableIframeTesting,
+            injectAxeCallback,
+            doNotInjectAxe);
+      }
     } catch (Exception e) {
       throw new RuntimeException("Unable to inject axe script", e);
     }
@@ -867,12 +1696,16 @@ public class AxeBuilder {
     try {
       boolean hasRunPartial =
           (Boolean) WebDriverInjectorExtensions.executeScript(webDriver, hasRunPartialScript);
-      final String allowedOrigins = !legacyMode && !hasRunPartial ? unsafeAllOrigins : sameOrigin;
+      final String allowedOrigins =
+          !profile.isLegacyMode() && !hasRunPartial ? unsafeAllOrigins : sameOrigin;
 
-      WebDriverInjectorExtensions.inject(
-          webDriver,
-          String.format(iframeAllowScriptTemplate, allowedOrigins),
-          disableIframeTesting);
+      String allowScript = String.format(iframeAllowScriptTemplate, allowedOrigins);
+      if (frameTreeInjection) {
+        WebDriverInjectorExtensions.injectFrameTree(
+            webDriver, allowScript, disableIframeTesting, null, false);
+      } else {
+        WebDriverInjectorExtensions.inject(webDriver, allowScript, disableIframeTesting);
+      }
     } catch (Exception e) {
       throw new RuntimeException("Error when enabling iframe communication", e);
     }
@@ -884,10 +1717,46 @@ public class AxeBuilder {
       return buildErrorResults(je);
     }
 
-    Results results = objectMapper.convertValue(response, Results.class);
+    Results results = parseResults(response);
+    if (profile.isPerformanceTimer()) {
+      // axe.run times the rules of every frame in the frame that runs them; only the top-level
+      // document is read
+      readRuleTimings(webDriver, state.getRuleTimings());
+      results.setRuleTimings(state.getRuleTimings().getTimings());
+    }
+    return results;
+  }
+
+  /**
+   * Converts the axe response to results, dropping the violations accepted in the baseline. A
+   * response serialized to JSON in the browser is parsed straight into the results, without
+   * building the object tree of the WebDriver response first.
+   */
+  private Results parseResults(final Object response) {
+    Results results;
+    if (response instanceof String) {
+      try {
+        results = objectMapper.readValue((String) response, Results.class);
+      } catch (JsonProcessingException e) {
+        throw new RuntimeException("Unable to parse the axe results", e);
+      }
+    } else {
+      results = objectMapper.convertValue(response, Results.class);
+    }
+    if (baseline != null) {
+      results.setViolations(baseline.removeKnownViolations(results.getViolations()));
+    }
     return results;
   }
 
+  private String getAxeSource() {
+    try {
+      return builderOptions.getScriptProvider().getScript();
+    } catch (Exception e) {
+      throw new RuntimeException("Unable to inject axe script", e);
+    }
+  }
+
   private void injectAxe(final WebDriver webDriver) {
     if (!doNotInjectAxe) {
       try {
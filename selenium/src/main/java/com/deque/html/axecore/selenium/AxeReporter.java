@@ -128,50 +128,70 @@ public final class AxeReporter {
   public static boolean getReadableAxeResults(
       final String typeOfScan, final WebDriver webDriver, final List<Rule> scannedResults) {
     StringBuilder message = new StringBuilder();
-    final int axeRules = scannedResults.size();
-
-    message.append("ACCESSIBILITY CHECK");
-    message.append(System.lineSeparator());
-    message
-        .append(typeOfScan.toUpperCase())
-        .append(" check for: ")
-        .append(webDriver.getCurrentUrl());
-    message.append(System.lineSeparator());
-    message.append("Found ").append(axeRules).append(" items");
-    message.append(System.lineSeparator());
-
-    if (axeRules == 0) {
-      setAxeResultString(message.toString().trim());
-      return false;
+    try {
+      writeReadableAxeResults(typeOfScan, webDriver.getCurrentUrl(), scannedResults, message);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
     }
+    setAxeResultString(message.toString().trim());
+    return !scannedResults.isEmpty();
+  }
 
-    message.append(System.getProperty("line.separator"));
-    int loops = 1;
+  /**
+   * Writes the readable report of scanned accessibility results, line by line, without keeping any
+   * state, so that parallel scans can report at the same time. The report is the same as the one
+   * kept by {@link #getReadableAxeResults(String, WebDriver, List)}, with the url of the scanned
+   * page taken from the results.
+   *
+   * @param typeOfScan Type of scan
+   * @param results the results the scanned rules come from
+   * @param scannedResults The scan results, such as the violations of the results
+   * @param out where to write the report
+   * @return True if the scan found anything
+   * @throws IOException if the report cannot be written
+   */
+  public static boolean writeReadableAxeResults(
+      final String typeOfScan,
+      final Results results,
+      final List<Rule> scannedResults,
+      final Appendable out)
+      throws IOException {
+    writeReadableAxeResults(typeOfScan, results.getUrl(), scannedResults, out);
+    return !scannedResults.isEmpty();
+  }
+
+  // each line after the first starts with a line separator, so nothing trails the report
+  private static void writeReadableAxeResults(
+      final String typeOfScan,
+      final String url,
+      final List<Rule> scannedResults,
+      final Appendable out)
+      throws IOException {
+    final String newline = System.lineSeparator();
+
+    out.append("ACCESSIBILITY CHECK");
+    out.append(newline).append(typeOfScan.toUpperCase()).append(" check for: ").append(url);
+    out.append(newline).append("Found ").append(String.valueOf(scannedResults.size()));
+    out.append(" items");
 
+    int loops = 1;
     for (Rule element : scannedResults) {
-      message.append(loops++).append(": ").append(element.getHelp());
-      message.append(System.lineSeparator());
-      message.append("Description: ").append(element.getDescription());
-      message.append(System.lineSeparator());
-      message.append("Help URL: ").append(element.getHelpUrl());
-      message.append(System.lineSeparator());
-      message.append("Impact: ").append(element.getImpact());
-      message.append(System.lineSeparator());
-      message.append("Tags: ").append(String.join(", ", element.getTags()));
-      message.append(System.lineSeparator());
-
-      if (element.getNodes() != null && !element.getNodes().isEmpty()) {
+      if (loops > 1) {
+        out.append(newline);
+      }
+      out.append(newline).append(newline);
+      out.append(String.valueOf(loops++)).append(": ").append(element.getHelp());
+      out.append(newline).append("Description: ").append(element.getDescription());
+      out.append(newline).append("Help URL: ").append(element.getHelpUrl());
+      out.append(newline).append("Impact: ").append(element.getImpact());
+      out.append(newline).append("Tags: ").append(String.join(", ", element.getTags()));
+
+      if (element.getNodes() != null) {
         for (Node item : element.getNodes()) {
-          message.append("\t\t" + "HTML element: ").append(item.getHtml());
-          message.append(System.lineSeparator());
-          message.append("\t\t" + "Selector: ").append(item.getTarget());
-          message.append(System.lineSeparator());
+          out.append(newline).append("\t\tHTML element: ").append(item.getHtml());
+          out.append(newline).append("\t\tSelector: ").append(String.valueOf(item.getTarget()));
         }
       }
-      message.append(System.lineSeparator());
-      message.append(System.lineSeparator());
     }
-    setAxeResultString(message.toString().trim());
-    return true;
   }
 }
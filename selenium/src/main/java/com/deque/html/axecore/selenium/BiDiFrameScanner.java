@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.results.FrameContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContext;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContextInfo;
+import org.openqa.selenium.bidi.module.Script;
+import org.openqa.selenium.bidi.script.EvaluateResult;
+import org.openqa.selenium.bidi.script.EvaluateResultExceptionValue;
+import org.openqa.selenium.bidi.script.EvaluateResultSuccess;
+import org.openqa.selenium.bidi.script.LocalValue;
+import org.openqa.selenium.bidi.script.RemoteValue;
+import org.openqa.selenium.bidi.script.WindowProxyProperties;
+
+/**
+ * Runs axe.runPartial in every frame of a page through WebDriver BiDi. Scripts are evaluated in
+ * the browsing context of each frame by id, so no WebDriver frame switching is needed. The
+ * browsing contexts below the top-level document are enumerated once and axe is injected into all
+ * of them concurrently; the frame tree reported by axe is then mapped onto those contexts, and
+ * axe.runPartial runs in every frame concurrently. Drivers without a BiDi session make the whole
+ * scan fall back to the WebDriver path.
+ */
+final class BiDiFrameScanner {
+  private static final int MAX_PARALLELISM = 8;
+
+  // the frame contexts as JSON, followed by the window of each frame (null when not found)
+  private static final String FRAMES_FUNCTION =
+      "(context) => {"
+          + "  const contexts = axe.utils.getFrameContexts(JSON.parse(context));"
+          + "  return [JSON.stringify(contexts)].concat(contexts.map(fc => {"
+          + "    const frame = axe.utils.shadowSelect(fc.frameSelector);"
+          + "    return (frame && frame.contentWindow) || null;"
+          + "  }));"
+          + "}";
+
+  // JSON passthrough removes properties that are set to undefined, as on the WebDriver path
+  private static final String RUN_PARTIAL_FUNCTION =
+      "(context, options) => "
+          + "axe.runPartial(JSON.parse(context), JSON.parse(options)).then(res => JSON.stringify(res))";
+
+  private final WebDriver webDriver;
+  private final String axeSource;
+  private final ObjectMapper objectMapper;
+  private final boolean disableIframeTesting;
+  private final long timeoutMillis;
+
+  /** a frame to scan, and the frames found in it. */
+  private static final class FrameNode {
+    private final String contextId;
+    private final String rawContext;
+    private final List<FrameNode> children = new ArrayList<>();
+    private Future<String> result;
+
+    FrameNode(final String contextId, final String rawContext) {
+      this.contextId = contextId;
+      this.rawContext = rawContext;
+    }
+  }
+
+  BiDiFrameScanner(
+      final WebDriver webDriver,
+      final String axeSource,
+      final ObjectMapper objectMapper,
+      final boolean disableIframeTesting,
+      final long timeoutMillis) {
+    this.webDriver = webDriver;
+    this.axeSource = axeSource;
+    this.objectMapper = objectMapper;
+    this.disableIframeTesting = disableIframeTesting;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Collects the partial results of every frame, in the same order as the WebDriver path: the
+   * results of a frame followed by those of each of its child frames, with null for a child frame
+   * that could not be scanned.
+   *
+   * @param rawContext the serialized axe context of the top-level document
+   * @param rawOptions the serialized axe options
+   * @return the partial results, or null when the driver has no BiDi session
+   */
+  List<String> scan(final String rawContext, final String rawOptions) {
+    if (!(webDriver instanceof HasBiDi) || !((HasBiDi) webDriver).maybeGetBiDi().isPresent()) {
+      return null;
+    }
+    String topContextId = webDriver.getWindowHandle();
+    Script script;
+    List<String> frameContextIds = new ArrayList<>();
+    try {
+      script = new Script(webDriver);
+      if (!disableIframeTesting) {
+        for (BrowsingContextInfo info : new BrowsingContext(webDriver, topContextId).getTree()) {
+          collectDescendants(info, frameContextIds);
+        }
+      }
+    } catch (WebDriverException e) {
+      return null;
+    }
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(MAX_PARALLELISM, frameContextIds.size() + 1)));
+    try {
+      Set<String> injected = injectAll(script, executor, frameContextIds);
+      FrameNode top = discover(script, topContextId, rawContext, injected);
+      submitAll(script, executor, top, rawOptions);
+
+      // every frame runs at once, so they all share one timeout
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      List<String> partialResults = new ArrayList<>();
+      collectResults(top, true, deadline, partialResults);
+      return partialResults;
+    } finally {
+      executor.shutdownNow();
+      script.close();
+    }
+  }
+
+  private static void collectDescendants(
+      final BrowsingContextInfo info, final List<String> contextIds) {
+    if (info.getChildren() == null) {
+      return;
+    }
+    for (BrowsingContextInfo child : info.getChildren()) {
+      contextIds.add(child.getId());
+      collectDescendants(child, contextIds);
+    }
+  }
+
+  /** injects axe into every frame at once, returning the contexts it could be injected into. */
+  private Set<String> injectAll(
+      final Script script, final ExecutorService executor, final List<String> contextIds) {
+    Set<String> injected = ConcurrentHashMap.newKeySet();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (String contextId : contextIds) {
+      tasks.add(
+          () -> {
+            try {
+              value(
+                  script.evaluateFunctionInBrowsingContext(
+                      contextId, axeSource, false, Optional.empty()));
+              injected.add(contextId);
+            } catch (RuntimeException e) {
+              // the frame is scanned as unreachable
+            }
+            return null;
+          });
+    }
+    try {
+      executor.invokeAll(tasks, timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while injecting axe into frames", e);
+    }
+    return injected;
+  }
+
+  /** maps the frames reported by axe in a browsing context onto their child browsing contexts. */
+  @SuppressWarnings("unchecked")
+  private FrameNode discover(
+      final Script script,
+      final String contextId,
+      final String rawContext,
+      final Set<String> injected) {
+    FrameNode node = new FrameNode(contextId, rawContext);
+    if (disableIframeTesting) {
+      return node;
+    }
+    List<RemoteValue> response;
+    List<FrameContext> frameContexts;
+    try {
+      response =
+          (List<RemoteValue>)
+              value(
+                  script.callFunctionInBrowsingContext(
+                      contextId,
+                      FRAMES_FUNCTION,
+                      false,
+                      Optional.of(Arrays.asList(LocalValue.stringValue(rawContext))),
+                      Optional.empty(),
+                      Optional.empty()));
+      frameContexts =
+          objectMapper.readValue(
+              (String) response.get(0).getValue().orElse("[]"),
+              new TypeReference<ArrayList<FrameContext>>() {});
+    } catch (Exception e) {
+      // the frame is scanned without its child frames
+      return node;
+    }
+
+    for (int i = 0; i < frameContexts.size(); i++) {
+      String childContextId = browsingContextOf(response.get(i + 1));
+      if (childContextId == null || !injected.contains(childContextId)) {
+        node.children.add(new FrameNode(null, null));
+        continue;
+      }
+      node.children.add(
+          discover(
+              script,
+              childContextId,
+              AxeReporter.serialize(frameContexts.get(i).getFrameContext()),
+              injected));
+    }
+    return node;
+  }
+
+  private void submitAll(
+      final Script script,
+      final ExecutorService executor,
+      final FrameNode node,
+      final String rawOptions) {
+    if (node.contextId != null) {
+      node.result =
+          executor.submit(
+              () ->
+                  (String)
+                      value(
+                          script.callFunctionInBrowsingContext(
+                              node.contextId,
+                              RUN_PARTIAL_FUNCTION,
+                              true,
+                              Optional.of(
+                                  Arrays.asList(
+                                      LocalValue.stringValue(node.rawContext),
+                                      LocalValue.stringValue(rawOptions))),
+                              Optional.empty(),
+                              Optional.empty())));
+    }
+    for (FrameNode child : node.children) {
+      submitAll(script, executor, child, rawOptions);
+    }
+  }
+
+  /**
+   * Waits for the results of a frame and its child frames, giving up on each frame once the
+   * deadline has passed.
+   *
+   * @param deadline when the scan times out, in {@link System#nanoTime()} units
+   */
+  private void collectResults(
+      final FrameNode node,
+      final boolean isTopLevel,
+      final long deadline,
+      final List<String> partialResults) {
+    String result = null;
+    try {
+      if (node.result != null) {
+        result =
+            node.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for axe.runPartial", e);
+    } catch (ExecutionException | TimeoutException e) {
+      if (e instanceof TimeoutException) {
+        node.result.cancel(true);
+      }
+      if (isTopLevel) {
+        throw new RuntimeException("axe.runPartial failed in the top-level document", e);
+      }
+    }
+    partialResults.add(result);
+    if (result == null && !isTopLevel) {
+      // as on the WebDriver path, the frames of a frame that was not scanned are left out
+      for (FrameNode child : node.children) {
+        cancelAll(child);
+      }
+      return;
+    }
+    for (FrameNode child : node.children) {
+      collectResults(child, false, deadline, partialResults);
+    }
+  }
+
+  private static void cancelAll(final FrameNode node) {
+    if (node.result != null) {
+      node.result.cancel(true);
+    }
+    for (FrameNode child : node.children) {
+      cancelAll(child);
+    }
+  }
+
+  private static String browsingContextOf(final RemoteValue window) {
+    Object value = window.getValue().orElse(null);
+    return value instanceof WindowProxyProperties
+        ? ((WindowProxyProperties) value).getBrowsingContext()
+        : null;
+  }
+
+  private static Object value(final EvaluateResult result) {
+    if (result instanceof EvaluateResultExceptionValue) {
+      throw new JavascriptException(
+          ((EvaluateResultExceptionValue) result).getExceptionDetails().getText());
+    }
+    return ((EvaluateResultSuccess) result).getResult().getValue().orElse(null);
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.results.FrameContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Runs axe.runPartial in every frame of a page through the Chrome DevTools Protocol. Each frame is
+ * addressed by its execution context, so no WebDriver frame switching is needed: the top-level
+ * document is evaluated in its main world, and axe is injected into an isolated world of each
+ * child frame. The worlds are kept by frame id and reused by later scans while axe is still in
+ * them, so a frame is injected again only once its document has been replaced. Frames that are not
+ * reachable from the page session (out-of-process cross-origin frames) make the whole scan fall
+ * back to the WebDriver path.
+ */
+final class DevToolsFrameScanner {
+  private static final String WORLD_NAME = "axe-core";
+
+  private final HasCdp devTools;
+  private final String axeSource;
+  private final ObjectMapper objectMapper;
+  private final boolean disableIframeTesting;
+  private final long timeoutMillis;
+  private final Map<String, Integer> worlds;
+
+  /** thrown when a frame cannot be reached, to fall back to the WebDriver path. */
+  static final class UnsupportedFrameException extends RuntimeException {
+    UnsupportedFrameException(final String message, final Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  DevToolsFrameScanner(
+      final HasCdp devTools,
+      final String axeSource,
+      final ObjectMapper objectMapper,
+      final boolean disableIframeTesting,
+      final long timeoutMillis,
+      final Map<String, Integer> worlds) {
+    this.devTools = devTools;
+    this.axeSource = axeSource;
+    this.objectMapper = objectMapper;
+    this.disableIframeTesting = disableIframeTesting;
+    this.timeoutMillis = timeoutMillis;
+    this.worlds = worlds;
+  }
+
+  /**
+   * Collects the partial results of every frame, in the same order as the WebDriver path: the
+   * results of a frame followed by those of each of its child frames, with null for a child frame
+   * that could not be scanned.
+   *
+   * @param rawContext the serialized axe context of the top-level document
+   * @param rawOptions the serialized axe options
+   * @return the partial results, or null when some frame is out of reach of the page session
+   */
+  List<String> scan(final String rawContext, final String rawOptions) {
+    try {
+      List<String> partialResults = new ArrayList<>();
+      scanFrame(null, rawContext, rawOptions, partialResults);
+      return partialResults;
+    } catch (UnsupportedFrameException e) {
+      return null;
+    }
+  }
+
+  private void scanFrame(
+      final Integer contextId,
+      final String rawContext,
+      final String rawOptions,
+      final List<String> partialResults) {
+    boolean isTopLevel = contextId == null;
+    List<FrameContext> frameContexts;
+    try {
+      Object contexts =
+          evaluate(
+              contextId,
+              "JSON.stringify(axe.utils.getFrameContexts(" + rawContext + "))",
+              false);
+      frameContexts =
+          objectMapper.readValue(
+              (String) contexts, new TypeReference<ArrayList<FrameContext>>() {});
+      partialResults.add(
+          (String)
+              evaluate(
+                  contextId,
+                  "axe.runPartial("
+                      + rawContext
+                      + ", "
+                      + rawOptions
+                      + ").then(res => JSON.stringify(res))",
+                  true));
+    } catch (UnsupportedFrameException e) {
+      throw e;
+    } catch (Exception e) {
+      if (isTopLevel) {
+        throw new RuntimeException("axe.runPartial failed in the top-level document", e);
+      }
+      partialResults.add(null);
+      return;
+    }
+
+    if (disableIframeTesting) {
+      return;
+    }
+    for (FrameContext frameContext : frameContexts) {
+      Integer childContextId;
+      try {
+        childContextId =
+            resolveFrame(contextId, AxeReporter.serialize(frameContext.getFrameSelector()));
+      } catch (UnsupportedFrameException e) {
+        throw e;
+      } catch (RuntimeException e) {
+        childContextId = null;
+      }
+      if (childContextId == null) {
+        partialResults.add(null);
+        continue;
+      }
+      scanFrame(
+          childContextId,
+          AxeReporter.serialize(frameContext.getFrameContext()),
+          rawOptions,
+          partialResults);
+    }
+  }
+
+  /**
+   * Finds the frame element selected in a parent frame and gets an isolated world with axe in its
+   * document, reusing the world of an earlier scan when axe is still there.
+   *
+   * @return the execution context id, or null when the selector matches no frame
+   */
+  @SuppressWarnings("unchecked")
+  private Integer resolveFrame(final Integer parentContextId, final String rawFrameSelector) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("expression", "axe.utils.shadowSelect(" + rawFrameSelector + ")");
+    if (parentContextId != null) {
+      params.put("contextId", parentContextId);
+    }
+    Map<String, Object> element =
+        (Map<String, Object>) devTools.executeCdpCommand("Runtime.evaluate", params).get("result");
+    if (element == null || element.get("objectId") == null) {
+      return null;
+    }
+    String objectId = (String) element.get("objectId");
+    try {
+      Map<String, Object> node =
+          (Map<String, Object>)
+              devTools
+                  .executeCdpCommand("DOM.describeNode", singletonMap("objectId", objectId))
+                  .get("node");
+      String frameId = node == null ? null : (String) node.get("frameId");
+      if (frameId == null) {
+        return null;
+      }
+      Integer world = worlds.get(frameId);
+      if (world != null && hasAxe(world)) {
+        return world;
+      }
+      Map<String, Object> worldParams = new HashMap<>();
+      worldParams.put("frameId", frameId);
+      worldParams.put("worldName", WORLD_NAME);
+      Number executionContextId =
+          (Number)
+              devTools
+                  .executeCdpCommand("Page.createIsolatedWorld", worldParams)
+                  .get("executionContextId");
+      world = executionContextId.intValue();
+      evaluate(world, axeSource, false);
+      worlds.put(frameId, world);
+      return world;
+    } catch (WebDriverException e) {
+      throw new UnsupportedFrameException("Frame is not reachable from the page session", e);
+    } finally {
+      try {
+        devTools.executeCdpCommand("Runtime.releaseObject", singletonMap("objectId", objectId));
+      } catch (WebDriverException e) {
+        // the frame may be gone, which releases the object too
+      }
+    }
+  }
+
+  /**
+   * gets whether axe is in an isolated world. The world is gone once its frame navigates, which
+   * fails the evaluation.
+   */
+  private boolean hasAxe(final int contextId) {
+    try {
+      return Boolean.TRUE.equals(evaluate(contextId, "typeof axe === 'object'", false));
+    } catch (WebDriverException | IllegalStateException e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object evaluate(
+      final Integer contextId, final String expression, final boolean awaitPromise) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("expression", expression);
+    params.put("returnByValue", true);
+    params.put("awaitPromise", awaitPromise);
+    params.put("timeout", timeoutMillis);
+    if (contextId != null) {
+      params.put("contextId", contextId);
+    }
+    Map<String, Object> response = devTools.executeCdpCommand("Runtime.evaluate", params);
+    Map<String, Object> exception = (Map<String, Object>) response.get("exceptionDetails");
+    if (exception != null) {
+      throw new IllegalStateException(String.valueOf(exception.get("text")));
+    }
+    Map<String, Object> result = (Map<String, Object>) response.get("result");
+    return result == null ? null : result.get("value");
+  }
+
+  private static Map<String, Object> singletonMap(final String key, final Object value) {
+    Map<String, Object> map = new HashMap<>();
+    map.put(key, value);
+    return map;
+  }
+}
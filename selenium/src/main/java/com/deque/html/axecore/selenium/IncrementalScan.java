@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.extensions.WebDriverInjectorExtensions;
+import com.deque.html.axecore.results.Node;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Tracks DOM mutations between scans so that only the mutated subtrees have to be scanned again.
+ * A MutationObserver installed in the top-level document (and in its open shadow roots and
+ * same-origin frames) records every mutated node as the light DOM element of the top-level document
+ * that contains it.
+ */
+final class IncrementalScan {
+
+  private static final String observerScript =
+      "const state = window.__axeMutations;"
+          + "if (state) { state.observer.disconnect(); }"
+          + "const roots = new Set();"
+          + "const next = { roots: roots, overflow: false };"
+          // Map a mutated node to the element of the top-level document containing it, crossing
+          // shadow root and frame boundaries.
+          + "const topLevelElement = node => {"
+          + "  let el = node.nodeType === 1 ? node : node.parentNode;"
+          + "  while (el) {"
+          + "    const root = el.getRootNode();"
+          + "    if (root === document) { return el.nodeType === 1 ? el : null; }"
+          + "    el = root.host || (root.defaultView && root.defaultView.frameElement) || null;"
+          + "  }"
+          + "  return null;"
+          + "};"
+          + "const options = { subtree: true, childList: true, attributes: true, characterData: true };"
+          + "const observeTree = root => {"
+          + "  next.observer.observe(root, options);"
+          + "  const elements = root.querySelectorAll ? root.querySelectorAll('*') : [];"
+          + "  for (const el of elements) {"
+          + "    if (el.shadowRoot) { observeTree(el.shadowRoot); }"
+          + "    if (el.nodeName === 'IFRAME' || el.nodeName === 'FRAME') {"
+          + "      el.addEventListener('load', () => roots.add(topLevelElement(el)));"
+          + "      try {"
+          + "        if (el.contentDocument) { observeTree(el.contentDocument); }"
+          + "      } catch (e) {}"
+          + "    }"
+          + "  }"
+          + "};"
+          + "next.observer = new MutationObserver(records => {"
+          + "  for (const record of records) {"
+          + "    const el = topLevelElement(record.target);"
+          + "    if (el) { roots.add(el); } else { next.overflow = true; }"
+          + "    for (const added of record.addedNodes) {"
+          + "      if (added.nodeType === 1) { observeTree(added); }"
+          + "    }"
+          + "  }"
+          + "});"
+          + "observeTree(document);"
+          + "window.__axeMutations = next;";
+
+  private static final String collectScript =
+      "const state = window.__axeMutations;"
+          + "if (!state || state.overflow) { return null; }"
+          + "const roots = Array.from(state.roots).filter(el => el && el.isConnected);"
+          + "state.roots.clear();"
+          + "if (roots.some(el => el === document.documentElement || el === document.body)) {"
+          + "  return null;"
+          + "}"
+          + "const topMost = roots.filter(el => !roots.some(other => other !== el && other.contains(el)));"
+          + "const selectorFor = el => {"
+          + "  const parts = [];"
+          + "  while (el && el !== document.documentElement) {"
+          + "    if (el.id && document.querySelectorAll('#' + CSS.escape(el.id)).length === 1) {"
+          + "      parts.unshift('#' + CSS.escape(el.id));"
+          + "      return parts.join(' > ');"
+          + "    }"
+          + "    let index = 1;"
+          + "    for (let s = el.previousElementSibling; s; s = s.previousElementSibling) { index++; }"
+          + "    parts.unshift(el.localName + ':nth-child(' + index + ')');"
+          + "    el = el.parentElement;"
+          + "  }"
+          + "  parts.unshift('html');"
+          + "  return parts.join(' > ');"
+          + "};"
+          + "return topMost.map(selectorFor);";
+
+  private static final String affectedTargetsScript =
+      "const roots = arguments[1].map(sel => document.querySelector(sel)).filter(Boolean);"
+          + "return arguments[0].filter(sel => {"
+          + "  let el;"
+          + "  try { el = document.querySelector(sel); } catch (e) { return true; }"
+          + "  return !el || roots.some(root => root.contains(el));"
+          + "});";
+
+  /** the number of mutated subtrees above which a full scan is cheaper. */
+  private final int maxMutatedSubtrees;
+
+  /**
+   * a copy of the results of the last scan, which incremental scans are merged into; the results
+   * returned to the caller are never kept.
+   */
+  private Results previous;
+
+  IncrementalScan(final int maxMutatedSubtrees) {
+    if (maxMutatedSubtrees < 1) {
+      throw new IllegalArgumentException("maxMutatedSubtrees must be at least 1");
+    }
+    this.maxMutatedSubtrees = maxMutatedSubtrees;
+  }
+
+  Results getPrevious() {
+    return previous;
+  }
+
+  void setPrevious(final Results results) {
+    this.previous = results == null ? null : ResultsMerger.copy(results);
+  }
+
+  /**
+   * Starts recording mutations in the current page, discarding anything recorded before.
+   *
+   * @param webDriver the driver, switched to the top-level document
+   */
+  void installObserver(final WebDriver webDriver) {
+    WebDriverInjectorExtensions.executeScript(webDriver, observerScript);
+  }
+
+  /**
+   * Collects and resets the subtrees mutated since the previous call.
+   *
+   * @param webDriver the driver, switched to the top-level document
+   * @return unique selectors of the outermost mutated elements, or null when a full scan is needed
+   *     (the page navigated, the document root mutated or there are too many subtrees)
+   */
+  @SuppressWarnings("unchecked")
+  List<String> collectMutatedSubtrees(final WebDriver webDriver) {
+    Object response = WebDriverInjectorExtensions.executeScript(webDriver, collectScript);
+    if (!(response instanceof List)) {
+      return null;
+    }
+    List<String> selectors = (List<String>) response;
+    return selectors.size() > maxMutatedSubtrees ? null : selectors;
+  }
+
+  /**
+   * Finds which nodes of the previous results are affected by the mutated subtrees, meaning they
+   * are inside one of them or no longer exist.
+   *
+   * @param webDriver the driver, switched to the top-level document
+   * @param mutatedSubtrees selectors returned by {@link #collectMutatedSubtrees(WebDriver)}
+   * @return the top-level selectors of the affected nodes
+   */
+  @SuppressWarnings("unchecked")
+  Set<String> findAffectedTargets(final WebDriver webDriver, final List<String> mutatedSubtrees) {
+    Set<String> targets = new LinkedHashSet<>();
+    for (List<Rule> rules : ResultsMerger.categories(previous)) {
+      for (Rule rule : rules) {
+        for (Node node : rule.getNodes()) {
+          String selector = ResultsMerger.topLevelSelector(node.getTarget());
+          if (selector != null) {
+            targets.add(selector);
+          }
+        }
+      }
+    }
+    if (targets.isEmpty()) {
+      return new HashSet<>();
+    }
+    Object response =
+        WebDriverInjectorExtensions.executeScript(
+            webDriver, affectedTargetsScript, new ArrayList<>(targets), mutatedSubtrees);
+    return new HashSet<>((List<String>) response);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.codec.SmileResultsCodec;
+import com.deque.html.axecore.results.Results;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded, least recently used cache of scan results keyed by DOM fingerprint. Results are
+ * held encoded, so every hit returns a copy that the caller is free to change.
+ */
+final class ResultCache {
+  /** the encoded cached results, in access order. */
+  private final LinkedHashMap<String, byte[]> entries;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maxEntries the number of results to keep before evicting the least recently used one
+   */
+  ResultCache(final int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be at least 1");
+    }
+    this.entries =
+        new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * gets the results cached for a key.
+   *
+   * @param key the cache key
+   * @return a copy of the cached results, or null on a cache miss
+   */
+  Results get(final String key) {
+    byte[] encoded;
+    synchronized (this) {
+      encoded = entries.get(key);
+    }
+    if (encoded == null) {
+      return null;
+    }
+    try {
+      return SmileResultsCodec.decode(encoded, Results.class);
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read cached results", e);
+    }
+  }
+
+  /**
+   * caches the results of a scan.
+   *
+   * @param key the cache key
+   * @param results the results to cache
+   */
+  void put(final String key, final Results results) {
+    byte[] encoded;
+    try {
+      encoded = SmileResultsCodec.encode(results);
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to cache results", e);
+    }
+    synchronized (this) {
+      entries.put(key, encoded);
+    }
+  }
+
+  /**
+   * gets the number of cached results.
+   *
+   * @return the number of cached results
+   */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /** removes every cached result. */
+  synchronized void clear() {
+    entries.clear();
+  }
+}
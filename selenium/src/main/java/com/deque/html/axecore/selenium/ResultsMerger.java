@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.codec.SmileResultsCodec;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Combines the results of scans made over different parts of the same page. */
+final class ResultsMerger {
+
+  private ResultsMerger() {}
+
+  /**
+   * Replaces the nodes of the affected elements in a previous scan with the results of a scan over
+   * the mutated subtrees. Rules left without nodes in every other category become inapplicable.
+   *
+   * @param previous the results of the last scan of the whole page
+   * @param partial the results of the scan over the mutated subtrees
+   * @param affectedTargets top-level selectors of the previous nodes to drop
+   * @return the partial results, with the merged rules set on them
+   */
+  static Results replaceSubtrees(
+      final Results previous, final Results partial, final Set<String> affectedTargets) {
+    partial.setViolations(
+        merge(previous.getViolations(), partial.getViolations(), affectedTargets));
+    partial.setPasses(merge(previous.getPasses(), partial.getPasses(), affectedTargets));
+    partial.setIncomplete(
+        merge(previous.getIncomplete(), partial.getIncomplete(), affectedTargets));
+    partial.setInapplicable(mergeInapplicable(previous, partial.getInapplicable(), partial));
+    return partial;
+  }
+
+  /**
+   * Adds the results of a scan over a region excluded from a page scan to the page results. The
+   * region results are left unchanged, so they can be reused for other pages.
+   *
+   * @param page the results of the page scan
+   * @param region the results of the region scan
+   * @return the page results, with the merged rules set on them
+   */
+  static Results append(final Results page, final Results region) {
+    return replaceSubtrees(region, page, Collections.emptySet());
+  }
+
+  /**
+   * Copies results down to their nodes, so that results kept for later scans cannot be changed
+   * through the instance returned to the caller.
+   *
+   * @param results the results to copy
+   * @return the copy
+   */
+  static Results copy(final Results results) {
+    try {
+      return SmileResultsCodec.decode(SmileResultsCodec.encode(results), Results.class);
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to copy results", e);
+    }
+  }
+
+  /**
+   * gets the rule lists of the categories that report nodes.
+   *
+   * @param results the results to read
+   * @return the violations, passes and incomplete rules
+   */
+  static List<List<Rule>> categories(final Results results) {
+    return Arrays.asList(
+        orEmpty(results.getViolations()), orEmpty(results.getPasses()),
+        orEmpty(results.getIncomplete()));
+  }
+
+  /**
+   * gets the selector of a node target in the top-level document, which is the first selector of
+   * a frame or shadow DOM path.
+   *
+   * @param target the node target as deserialized from axe
+   * @return the top-level selector, or null for an empty target
+   */
+  static String topLevelSelector(final Object target) {
+    Object selector = target;
+    while (selector instanceof List) {
+      List<?> path = (List<?>) selector;
+      if (path.isEmpty()) {
+        return null;
+      }
+      selector = path.get(0);
+    }
+    return selector instanceof String ? (String) selector : null;
+  }
+
+  private static List<Rule> merge(
+      final List<Rule> previous, final List<Rule> partial, final Set<String> affectedTargets) {
+    Map<String, Rule> merged = new LinkedHashMap<>();
+    for (Rule rule : orEmpty(previous)) {
+      List<CheckedNode> nodes = new ArrayList<>();
+      for (CheckedNode node : rule.getNodes()) {
+        if (!affectedTargets.contains(topLevelSelector(node.getTarget()))) {
+          nodes.add(node);
+        }
+      }
+      if (!nodes.isEmpty()) {
+        merged.put(rule.getId(), copyRule(rule, nodes));
+      }
+    }
+    for (Rule rule : orEmpty(partial)) {
+      Rule existing = merged.get(rule.getId());
+      if (existing == null) {
+        merged.put(rule.getId(), copyRule(rule, new ArrayList<>(rule.getNodes())));
+      } else {
+        existing.getNodes().addAll(rule.getNodes());
+      }
+    }
+    return new ArrayList<>(merged.values());
+  }
+
+  private static List<Rule> mergeInapplicable(
+      final Results previous, final List<Rule> partial, final Results merged) {
+    Set<String> applicable = new HashSet<>();
+    for (List<Rule> rules : categories(merged)) {
+      for (Rule rule : rules) {
+        applicable.add(rule.getId());
+      }
+    }
+    Map<String, Rule> inapplicable = new LinkedHashMap<>();
+    for (Rule rule : orEmpty(previous.getInapplicable())) {
+      inapplicable.putIfAbsent(rule.getId(), rule);
+    }
+    for (Rule rule : orEmpty(partial)) {
+      inapplicable.putIfAbsent(rule.getId(), rule);
+    }
+    // rules whose only nodes were in the mutated subtrees
+    for (List<Rule> rules : categories(previous)) {
+      for (Rule rule : rules) {
+        inapplicable.putIfAbsent(rule.getId(), copyRule(rule, new ArrayList<>()));
+      }
+    }
+    inapplicable.keySet().removeAll(applicable);
+    return new ArrayList<>(inapplicable.values());
+  }
+
+  private static Rule copyRule(final Rule rule, final List<CheckedNode> nodes) {
+    Rule copy = new Rule();
+    copy.setId(rule.getId());
+    copy.setDescription(rule.getDescription());
+    copy.setHelp(rule.getHelp());
+    copy.setHelpUrl(rule.getHelpUrl());
+    copy.setImpact(rule.getImpact());
+    copy.setTags(rule.getTags());
+    copy.setUrl(rule.getUrl());
+    copy.setCreatedDate(rule.getCreatedDate());
+    copy.setNodes(nodes);
+    return copy;
+  }
+
+  private static List<Rule> orEmpty(final List<Rule> rules) {
+    return rules == null ? new ArrayList<>() : rules;
+  }
+}
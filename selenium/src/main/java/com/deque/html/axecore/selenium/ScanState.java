@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.crawl.RuleTimingAggregator;
+import com.deque.html.axecore.results.SkippedFrame;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state of one scan: its time limits, the frames it left out and the rule timings it measured.
+ * A scan gets its own state, so a builder keeps no state between scans.
+ */
+final class ScanState {
+  private final Duration frameTimeout;
+  private final Duration scanBudget;
+
+  /** when the scan budget runs out, in {@link System#nanoTime()} units. */
+  private final long deadline;
+
+  private final List<SkippedFrame> skippedFrames = new ArrayList<>();
+  private final RuleTimingAggregator ruleTimings = new RuleTimingAggregator();
+
+  /** how long axe may run in a frame, and the reason the frame is skipped past that time. */
+  static final class FrameLimit {
+    private final long millis;
+    private final String reason;
+
+    private FrameLimit(final long millis, final String reason) {
+      this.millis = millis;
+      this.reason = reason;
+    }
+
+    long getMillis() {
+      return millis;
+    }
+
+    String getReason() {
+      return reason;
+    }
+  }
+
+  /**
+   * Starts the state of a scan, and its scan budget.
+   *
+   * @param frameTimeout how long axe may run in each child frame, null for no limit
+   * @param scanBudget how long the frames of the scan may take altogether, null for no limit
+   */
+  ScanState(final Duration frameTimeout, final Duration scanBudget) {
+    this.frameTimeout = frameTimeout;
+    this.scanBudget = scanBudget;
+    this.deadline = scanBudget == null ? 0 : System.nanoTime() + scanBudget.toNanos();
+  }
+
+  boolean hasTimeLimit() {
+    return frameTimeout != null || scanBudget != null;
+  }
+
+  boolean isBudgetSpent() {
+    return scanBudget != null && System.nanoTime() >= deadline;
+  }
+
+  /**
+   * gets how long axe may run in the next frame: the frame timeout, or what is left of the scan
+   * budget when that is shorter.
+   *
+   * @return the time limit and the reason it sets
+   */
+  FrameLimit frameLimit() {
+    long budgetMillis =
+        scanBudget == null
+            ? Long.MAX_VALUE
+            : Math.max(0, (deadline - System.nanoTime()) / 1_000_000);
+    if (frameTimeout != null && frameTimeout.toMillis() <= budgetMillis) {
+      return new FrameLimit(frameTimeout.toMillis(), SkippedFrame.FRAME_TIMEOUT);
+    }
+    return new FrameLimit(budgetMillis, SkippedFrame.SCAN_BUDGET);
+  }
+
+  void skipFrame(final SkippedFrame frame) {
+    skippedFrames.add(frame);
+  }
+
+  int getSkippedFrameCount() {
+    return skippedFrames.size();
+  }
+
+  /**
+   * gets the frames left out of the scan.
+   *
+   * @return the frames, or null when every frame was scanned
+   */
+  List<SkippedFrame> getSkippedFrames() {
+    return skippedFrames.isEmpty() ? null : new ArrayList<>(skippedFrames);
+  }
+
+  RuleTimingAggregator getRuleTimings() {
+    return ruleTimings;
+  }
+}
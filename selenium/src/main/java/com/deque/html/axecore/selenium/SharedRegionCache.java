@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.deque.html.axecore.results.Results;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Regions shared by the pages of a crawl, such as a site header or navigation menu, and the results
+ * of scanning them. Keep one cache for a whole crawl and pass it to every {@link AxeBuilder} with
+ * {@link AxeBuilder#withSharedRegions(SharedRegionCache)}, so that each distinct version of a
+ * region is scanned only once.
+ */
+public final class SharedRegionCache {
+  private static final int DEFAULT_MAX_ENTRIES = 64;
+
+  private final List<String> selectors;
+  private final ResultCache results;
+
+  /**
+   * creates a cache for the regions matched by CSS selectors.
+   *
+   * @param selectors CSS selectors of the shared regions, in the top-level document
+   */
+  public SharedRegionCache(final String... selectors) {
+    this(Arrays.asList(selectors), DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * creates a cache for the regions matched by CSS selectors.
+   *
+   * @param selectors CSS selectors of the shared regions, in the top-level document
+   * @param maxEntries the number of region results to keep across all regions; the least recently
+   *     used are evicted first
+   */
+  public SharedRegionCache(final List<String> selectors, final int maxEntries) {
+    if (selectors.isEmpty()) {
+      throw new IllegalArgumentException("at least one shared region selector is required");
+    }
+    this.selectors = Collections.unmodifiableList(new ArrayList<>(selectors));
+    this.results = new ResultCache(maxEntries);
+  }
+
+  /**
+   * gets the CSS selectors of the shared regions.
+   *
+   * @return the selectors
+   */
+  public List<String> getSelectors() {
+    return selectors;
+  }
+
+  /**
+   * gets the number of region results currently cached.
+   *
+   * @return the number of cached results
+   */
+  public int size() {
+    return results.size();
+  }
+
+  /** removes every cached region result, so that each region is scanned again. */
+  public void clear() {
+    results.clear();
+  }
+
+  Results get(final String key) {
+    return results.get(key);
+  }
+
+  void put(final String key, final Results regionResults) {
+    results.put(key, regionResults);
+  }
+}
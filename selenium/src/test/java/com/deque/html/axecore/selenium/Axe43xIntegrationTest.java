@@ -17,18 +17,28 @@ import static org.mockito.ArgumentMatchers.any;
 
 import com.deque.html.axecore.args.FromFrames;
 import com.deque.html.axecore.args.FromShadowDom;
+import com.deque.html.axecore.args.ScanProfile;
+import com.deque.html.axecore.baseline.BaselineStore;
+import com.deque.html.axecore.crawl.AdaptiveRuleSelector;
+import com.deque.html.axecore.extensions.WebDriverInjectorExtensions;
 import com.deque.html.axecore.providers.EmbeddedResourceAxeProvider;
 import com.deque.html.axecore.providers.StringAxeScriptProvider;
 import com.deque.html.axecore.results.CheckedNode;
 import com.deque.html.axecore.results.Results;
 import com.deque.html.axecore.results.Rule;
+import com.deque.html.axecore.results.RuleTiming;
+import com.deque.html.axecore.results.SkippedFrame;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,6 +48,7 @@ import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.UnexpectedAlertBehaviour;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
@@ -45,6 +56,8 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 /** Unit tests for Axe Integration. */
@@ -172,6 +185,137 @@ public class Axe43xIntegrationTest {
     assertFalse(res.isErrored());
   }
 
+  @Test
+  public void returnsCachedResultsWhenDomIsUnchanged() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    AxeBuilder builder = new AxeBuilder().withResultCache(10);
+
+    Results first = builder.analyze(webDriver);
+    first.getPasses().clear();
+    Results second = builder.analyze(webDriver);
+
+    assertNotSame(first, second);
+    assertFalse(second.getPasses().isEmpty());
+    assertEquals(first.getTimestamp(), second.getTimestamp());
+  }
+
+  @Test
+  public void doesNotShareCachedResultsBetweenUrls() throws Exception {
+    AxeBuilder builder = new AxeBuilder().withResultCache(10);
+
+    webDriver.get(fixture("/index.html"));
+    builder.analyze(webDriver);
+    webDriver.get(fixture("/index.html") + "?copy");
+    Results second = builder.analyze(webDriver);
+
+    assertTrue(second.getUrl().endsWith("?copy"));
+  }
+
+  @Test
+  public void rescansWhenDomChanges() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    AxeBuilder builder = new AxeBuilder().withResultCache(10);
+
+    Results first = builder.analyze(webDriver);
+    ((JavascriptExecutor) webDriver)
+        .executeScript("document.body.appendChild(document.createElement('img'))");
+    Results second = builder.analyze(webDriver);
+
+    assertNotSame(first, second);
+    assertTrue(
+        second.getViolations().stream().anyMatch(rule -> rule.getId().equals("image-alt")));
+  }
+
+  @Test
+  public void scansSharedRegionsOnce() throws Exception {
+    SharedRegionCache regions = new SharedRegionCache("#shared-header");
+    JavascriptExecutor js = (JavascriptExecutor) webDriver;
+    String addHeader =
+        "const header = document.createElement('header');"
+            + "header.id = 'shared-header';"
+            + "header.appendChild(document.createElement('img'));"
+            + "document.body.prepend(header);";
+
+    for (int page = 0; page < 2; page++) {
+      webDriver.get(fixture("/index.html"));
+      js.executeScript(addHeader);
+      Results res = new AxeBuilder().withSharedRegions(regions).analyze(webDriver);
+
+      assertTrue(res.getViolations().stream().anyMatch(rule -> rule.getId().equals("image-alt")));
+      assertEquals(1, regions.size());
+    }
+
+    js.executeScript(
+        "document.getElementById('shared-header').appendChild(document.createElement('input'))");
+    Results changed = new AxeBuilder().withSharedRegions(regions).analyze(webDriver);
+
+    assertTrue(changed.getViolations().stream().anyMatch(rule -> rule.getId().equals("label")));
+    assertEquals(2, regions.size());
+  }
+
+  @Test
+  public void leavesBaselineViolationsOutOfResults() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    JavascriptExecutor js = (JavascriptExecutor) webDriver;
+    js.executeScript("document.body.appendChild(document.createElement('img'))");
+    File baselineFile = File.createTempFile("axe-baseline", ".axeb");
+    baselineFile.deleteOnExit();
+    Results accepted = new AxeBuilder().analyze(webDriver);
+    BaselineStore.writer().addViolations(accepted.getViolations()).write(baselineFile.toPath());
+
+    js.executeScript("document.body.appendChild(document.createElement('input'))");
+    try (BaselineStore baseline = BaselineStore.open(baselineFile.toPath())) {
+      Results res = new AxeBuilder().withBaseline(baseline).analyze(webDriver);
+
+      assertEquals(1, res.getViolations().size());
+      assertEquals("label", res.getViolations().get(0).getId());
+    }
+  }
+
+  @Test
+  public void waitsForQuiescenceBeforeScanning() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    ((JavascriptExecutor) webDriver)
+        .executeScript(
+            "setTimeout(() => document.body.appendChild(document.createElement('img')), 300)");
+
+    Results res =
+        new AxeBuilder()
+            .waitForQuiescence(Duration.ofMillis(200), Duration.ofSeconds(5))
+            .withOnlyRules(Arrays.asList("image-alt"))
+            .analyze(webDriver);
+
+    assertEquals(1, res.getViolations().size());
+    assertEquals("image-alt", res.getViolations().get(0).getId());
+  }
+
+  @Test
+  public void incrementalScanMergesMutatedSubtrees() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    JavascriptExecutor js = (JavascriptExecutor) webDriver;
+    js.executeScript(
+        "const region = document.createElement('div');"
+            + "region.id = 'incremental-region';"
+            + "document.body.appendChild(region);");
+    AxeBuilder builder = new AxeBuilder().withIncrementalScan(10);
+
+    Results first = builder.analyze(webDriver);
+    assertFalse(first.getViolations().stream().anyMatch(rule -> rule.getId().equals("image-alt")));
+
+    js.executeScript(
+        "document.getElementById('incremental-region').appendChild(document.createElement('img'))");
+    Results second = builder.analyze(webDriver);
+    Results full = new AxeBuilder().analyze(webDriver);
+
+    assertEquals(ruleIds(full.getViolations()), ruleIds(second.getViolations()));
+    assertEquals(ruleIds(full.getPasses()), ruleIds(second.getPasses()));
+
+    js.executeScript("document.getElementById('incremental-region').innerHTML = ''");
+    Results third = builder.analyze(webDriver);
+
+    assertEquals(ruleIds(first.getViolations()), ruleIds(third.getViolations()));
+  }
+
   @Test
   public void injectsIntoNestedIframes() throws Exception {
     webDriver.get(fixture("/nested-iframes.html"));
@@ -191,6 +335,326 @@ public class Axe43xIntegrationTest {
     assertEquals(Arrays.asList("#ifr-baz", "input"), nodes.get(3).getTarget());
   }
 
+  @Test
+  public void devToolsProtocolMatchesWebDriverFrameTraversal() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    Results webDriverResults =
+        new AxeBuilder().withOnlyRules(Arrays.asList("label")).analyze(webDriver);
+    Results devToolsResults =
+        new AxeBuilder()
+            .useDevToolsProtocol(true)
+            .withOnlyRules(Arrays.asList("label"))
+            .analyze(webDriver);
+
+    List<CheckedNode> expected = webDriverResults.getViolations().get(0).getNodes();
+    List<CheckedNode> actual = devToolsResults.getViolations().get(0).getNodes();
+    assertEquals(4, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getTarget(), actual.get(i).getTarget());
+    }
+  }
+
+  @Test
+  public void webDriverBiDiMatchesWebDriverFrameTraversal() throws Exception {
+    ChromeOptions options = new ChromeOptions().addArguments("--headless=new");
+    options.setCapability("webSocketUrl", true);
+    WebDriver biDiDriver = new ChromeDriver(options);
+    try {
+      biDiDriver.get(fixture("/nested-iframes.html"));
+
+      Results webDriverResults =
+          new AxeBuilder().withOnlyRules(Arrays.asList("label")).analyze(biDiDriver);
+      Results biDiResults =
+          new AxeBuilder()
+              .useWebDriverBiDi(true)
+              .withOnlyRules(Arrays.asList("label"))
+              .analyze(biDiDriver);
+
+      List<CheckedNode> expected = webDriverResults.getViolations().get(0).getNodes();
+      List<CheckedNode> actual = biDiResults.getViolations().get(0).getNodes();
+      assertEquals(4, actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getTarget(), actual.get(i).getTarget());
+      }
+    } finally {
+      biDiDriver.quit();
+    }
+  }
+
+  @Test
+  public void scanProfileIsUnaffectedByLaterBuilderChanges() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    AxeBuilder builder = new AxeBuilder().withOnlyRules(Arrays.asList("label"));
+    ScanProfile profile = builder.buildProfile();
+    builder.withOnlyRules(Arrays.asList("region")).disableIframeTesting();
+
+    Results builderResults =
+        new AxeBuilder().withOnlyRules(Arrays.asList("label")).analyze(webDriver);
+    Results profileResults = new AxeBuilder().analyze(webDriver, profile);
+    Results reusedResults = builder.analyze(webDriver, profile);
+
+    List<CheckedNode> expected = builderResults.getViolations().get(0).getNodes();
+    assertEquals(4, expected.size());
+    for (Results results : Arrays.asList(profileResults, reusedResults)) {
+      assertEquals(1, results.getViolations().size());
+      assertEquals("label", results.getViolations().get(0).getId());
+      List<CheckedNode> actual = results.getViolations().get(0).getNodes();
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getTarget(), actual.get(i).getTarget());
+      }
+    }
+  }
+
+  @Test
+  public void incrementalScanDoesNotShareResultsWithTheCaller() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    AxeBuilder builder = new AxeBuilder().withIncrementalScan(10);
+
+    Results first = builder.analyze(webDriver);
+    int passes = first.getPasses().size();
+    first.getPasses().clear();
+    Results second = builder.analyze(webDriver);
+    second.getPasses().clear();
+    Results third = builder.analyze(webDriver);
+
+    assertNotSame(second, third);
+    assertEquals(passes, third.getPasses().size());
+  }
+
+  @Test
+  public void incrementalScanUsesTheProfileContext() throws Exception {
+    webDriver.get(fixture("/index.html"));
+    JavascriptExecutor js = (JavascriptExecutor) webDriver;
+    js.executeScript(
+        "for (const id of ['incremental-region', 'excluded-region']) {"
+            + "  const region = document.createElement('div');"
+            + "  region.id = id;"
+            + "  document.body.appendChild(region);"
+            + "}");
+    ScanProfile profile = new AxeBuilder().exclude("#excluded-region").buildProfile();
+    AxeBuilder builder = new AxeBuilder().withIncrementalScan(10);
+
+    builder.analyze(webDriver, profile);
+    js.executeScript(
+        "for (const id of ['incremental-region', 'excluded-region']) {"
+            + "  document.getElementById(id).appendChild(document.createElement('img'));"
+            + "}");
+    Results results = builder.analyze(webDriver, profile);
+
+    Rule imageAlt =
+        results.getViolations().stream()
+            .filter(rule -> rule.getId().equals("image-alt"))
+            .findFirst()
+            .get();
+    assertEquals(1, imageAlt.getNodes().size());
+    assertFalse(imageAlt.getNodes().get(0).getTarget().toString().contains("excluded-region"));
+  }
+
+  @Test
+  public void scansConcurrentlyWithSharedProfile() throws Exception {
+    ScanProfile profile = new AxeBuilder().withOnlyRules(Arrays.asList("label")).buildProfile();
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Results>> scans = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        scans.add(
+            executor.submit(
+                () -> {
+                  WebDriver driver =
+                      new ChromeDriver(new ChromeOptions().addArguments("--headless=new"));
+                  try {
+                    driver.get(fixture("/nested-iframes.html"));
+                    return new AxeBuilder()
+                        .withFrameTimeout(Duration.ofSeconds(30))
+                        .analyze(driver, profile);
+                  } finally {
+                    driver.quit();
+                  }
+                }));
+      }
+      for (Future<Results> scan : scans) {
+        Results results = scan.get(2, TimeUnit.MINUTES);
+        assertFalse(results.isErrored());
+        assertNull(results.getSkippedFrames());
+        assertEquals(1, results.getViolations().size());
+        assertEquals("label", results.getViolations().get(0).getId());
+        assertEquals(4, results.getViolations().get(0).getNodes().size());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void collectsRuleTimingsWithPerformanceTimer() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    Results res =
+        new AxeBuilder()
+            .withPerformanceTimer(true)
+            .withOnlyRules(Arrays.asList("label", "region"))
+            .analyze(webDriver);
+
+    assertFalse(res.getErrorMessage(), res.isErrored());
+    List<RuleTiming> timings = res.getRuleTimings();
+    assertNotNull(timings);
+    assertEquals(2, timings.size());
+    for (RuleTiming timing : timings) {
+      assertTrue(Arrays.asList("label", "region").contains(timing.getRuleId()));
+      // one run of each rule per frame
+      assertTrue(timing.getCount() > 1);
+      assertTrue(timing.getMaxMillis() <= timing.getTotalMillis());
+    }
+    assertTrue(timings.get(0).getTotalMillis() >= timings.get(1).getTotalMillis());
+
+    assertNull(new AxeBuilder().analyze(webDriver).getRuleTimings());
+  }
+
+  @Test
+  public void adaptiveRuleSelectionLeavesOutInapplicableRules() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+    AdaptiveRuleSelector selector = new AdaptiveRuleSelector(10, 1);
+
+    Results full = new AxeBuilder().withAdaptiveRuleSelection(selector).analyze(webDriver);
+    Results narrowed = new AxeBuilder().withAdaptiveRuleSelection(selector).analyze(webDriver);
+
+    assertFalse(narrowed.getErrorMessage(), narrowed.isErrored());
+    assertFalse(full.getInapplicable().isEmpty());
+    assertTrue(narrowed.getInapplicable().isEmpty());
+    assertEquals(
+        full.getViolations().stream().map(Rule::getId).collect(Collectors.toList()),
+        narrowed.getViolations().stream().map(Rule::getId).collect(Collectors.toList()));
+    assertEquals(full.getPasses().size(), narrowed.getPasses().size());
+  }
+
+  @Test
+  public void spilledPartialResultsMatchInMemoryResults() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    Results inMemory = new AxeBuilder().withOnlyRules(Arrays.asList("label")).analyze(webDriver);
+    Results spilled =
+        new AxeBuilder()
+            .withOnlyRules(Arrays.asList("label"))
+            .withPartialResultSpillThreshold(0)
+            .analyze(webDriver);
+
+    assertFalse(spilled.getErrorMessage(), spilled.isErrored());
+    List<CheckedNode> expected = inMemory.getViolations().get(0).getNodes();
+    List<CheckedNode> actual = spilled.getViolations().get(0).getNodes();
+    assertEquals(4, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getTarget(), actual.get(i).getTarget());
+    }
+  }
+
+  @Test
+  public void legacyResultsParseLikeRunPartialResults() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    Results runPartial =
+        new AxeBuilder().withOnlyRules(Arrays.asList("label")).analyze(webDriver);
+    Results legacy =
+        new AxeBuilder()
+            .withOnlyRules(Arrays.asList("label"))
+            .setLegacyMode(true)
+            .analyze(webDriver);
+
+    assertFalse(legacy.getErrorMessage(), legacy.isErrored());
+    assertEquals(webDriver.getCurrentUrl(), legacy.getUrl());
+    assertEquals("label", legacy.getViolations().get(0).getId());
+    assertEquals(
+        runPartial.getViolations().get(0).getNodes().size(),
+        legacy.getViolations().get(0).getNodes().size());
+    assertNotNull(legacy.getViolations().get(0).getNodes().get(0).getHtml());
+  }
+
+  @Test
+  public void skipsFramesThatExceedTheFrameTimeout() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    AxeBuilder builder =
+        new AxeBuilder()
+            .withFrameTimeout(Duration.ofMillis(200))
+            .withOnlyRules(Arrays.asList("label"));
+    // holds axe.runPartial back in every child frame
+    builder.setInjectAxe(
+        driver ->
+            ((JavascriptExecutor) driver)
+                .executeScript(
+                    "if (window !== window.top) {"
+                        + "  const runPartial = axe.runPartial;"
+                        + "  axe.runPartial = (context, options) =>"
+                        + "    new Promise(resolve => setTimeout(resolve, 2000))"
+                        + "      .then(() => runPartial(context, options));"
+                        + "}"),
+        true);
+    Results res = builder.analyze(webDriver);
+
+    assertFalse(res.getErrorMessage(), res.isErrored());
+    assertNotNull(res.getSkippedFrames());
+    assertFalse(res.getSkippedFrames().isEmpty());
+    for (SkippedFrame skipped : res.getSkippedFrames()) {
+      assertEquals(SkippedFrame.FRAME_TIMEOUT, skipped.getReason());
+      // the frames inside a skipped frame are not visited
+      assertEquals(1, ((List<?>) skipped.getFrameSelector()).size());
+    }
+  }
+
+  @Test
+  public void skipsRemainingFramesOnceTheScanBudgetIsSpent() throws Exception {
+    webDriver.get(fixture("/nested-iframes.html"));
+
+    Results res =
+        new AxeBuilder()
+            .withScanBudget(Duration.ofNanos(1))
+            .withOnlyRules(Arrays.asList("label"))
+            .analyze(webDriver);
+
+    assertFalse(res.getErrorMessage(), res.isErrored());
+    assertFalse(res.getSkippedFrames().isEmpty());
+    for (SkippedFrame skipped : res.getSkippedFrames()) {
+      assertEquals(SkippedFrame.SCAN_BUDGET, skipped.getReason());
+    }
+  }
+
+  @Test
+  public void frameTreeInjectionReachesEveryFrameWithFewerCalls() throws Exception {
+    String marker = "window.__axeInjected = (window.__axeInjected || 0) + 1;";
+    String countInjections =
+        "const counts = [window.__axeInjected];"
+            + "const walk = win => {"
+            + "  for (let i = 0; i < win.frames.length; i++) {"
+            + "    counts.push(win.frames[i].__axeInjected);"
+            + "    walk(win.frames[i]);"
+            + "  }"
+            + "};"
+            + "walk(window);"
+            + "return counts;";
+    WebDriverCallCounter counter = new WebDriverCallCounter();
+    WebDriver driver = new EventFiringDecorator<>(counter).decorate(webDriver);
+
+    driver.get(fixture("/nested-iframes.html"));
+    counter.calls = 0;
+    WebDriverInjectorExtensions.inject(driver, marker, false);
+    int legacyCalls = counter.calls;
+
+    driver.get(fixture("/nested-iframes.html"));
+    counter.calls = 0;
+    int treeCalls = WebDriverInjectorExtensions.injectFrameTree(driver, marker, false, null, false);
+    assertEquals(treeCalls, counter.calls);
+    assertTrue(treeCalls < legacyCalls);
+
+    List<?> counts = (List<?>) ((JavascriptExecutor) driver).executeScript(countInjections);
+    assertTrue(counts.size() > 1);
+    for (Object count : counts) {
+      assertEquals(1L, count);
+    }
+  }
+
   @Test
   public void injectsIntoNestedFrameset() throws Exception {
     webDriver.get(fixture("/nested-frameset.html"));
@@ -616,6 +1080,34 @@ public class Axe43xIntegrationTest {
     driver.quit();
   }
 
+  @Test
+  public void waitsForQuiescenceOnSelenium3() {
+    ChromeDriver realDriver = new ChromeDriver(new ChromeOptions().addArguments("--headless=new"));
+    WebDriver driver = Mockito.spy(realDriver);
+
+    WebDriver.Options options = Mockito.mock(WebDriver.Options.class);
+    WebDriver.Timeouts timeouts = Mockito.mock(WebDriver.Timeouts.class);
+
+    Mockito.when(driver.manage()).thenReturn(options);
+    Mockito.when(options.timeouts()).thenReturn(timeouts);
+    Mockito.when(timeouts.getScriptTimeout()).thenThrow(new NoSuchMethodError("BOOM"));
+    Mockito.when(timeouts.scriptTimeout(any())).thenThrow(new NoSuchMethodError("BOOM"));
+
+    driver.get((fixture("/index.html")));
+
+    Results results =
+        new AxeBuilder()
+            .waitForQuiescence(Duration.ofMillis(200), Duration.ofSeconds(2))
+            .analyze(driver);
+
+    assertFalse(results.isErrored());
+    InOrder inOrder = Mockito.inOrder(timeouts);
+    inOrder.verify(timeouts).setScriptTimeout(7000, TimeUnit.MILLISECONDS);
+    inOrder.verify(timeouts).setScriptTimeout(30, TimeUnit.SECONDS);
+
+    driver.quit();
+  }
+
   public void assertTargetEquals(Object target, String[] expected) {
     if (target instanceof Collection) {
       Collection<?> c = (Collection<?>) target;
@@ -655,4 +1147,20 @@ public class Axe43xIntegrationTest {
     webDriver.manage().timeouts().setScriptTimeout(20, TimeUnit.SECONDS);
     webDriver.manage().window().maximize();
   }
+
+  private static Set<String> ruleIds(final List<Rule> rules) {
+    return rules.stream().map(Rule::getId).collect(Collectors.toSet());
+  }
+
+  /** counts the calls that reach the browser through a decorated driver. */
+  private static class WebDriverCallCounter implements WebDriverListener {
+    private int calls;
+
+    @Override
+    public void beforeAnyCall(final Object target, final Method method, final Object[] args) {
+      if (!method.getName().equals("switchTo")) {
+        calls++;
+      }
+    }
+  }
 }
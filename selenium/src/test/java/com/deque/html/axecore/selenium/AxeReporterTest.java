@@ -14,18 +14,21 @@ package com.deque.html.axecore.selenium;
 
 import static com.deque.html.axecore.selenium.AxeReporter.getAxeResultString;
 import static com.deque.html.axecore.selenium.AxeReporter.getReadableAxeResults;
+import static com.deque.html.axecore.selenium.AxeReporter.writeReadableAxeResults;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.naming.OperationNotSupportedException;
 
 import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
 import com.deque.html.axecore.results.Rule;
 import org.junit.After;
 import org.junit.Before;
@@ -166,4 +169,50 @@ public class AxeReporterTest {
 
     assertEquals(expected, getAxeResultString());
   }
+
+  @Test
+  public void testWriteReadableAxeResults() throws IOException {
+    Rule r1 = new Rule();
+    r1.setHelp("help1");
+    r1.setHelpUrl("helpUrl1");
+    r1.setDescription("desc1");
+    r1.setImpact("critical1");
+    r1.setTags(Arrays.asList("tag11", "tag12"));
+    CheckedNode n1 = new CheckedNode();
+    n1.setHtml("html11");
+    n1.setTarget("selector11");
+    r1.setNodes(Arrays.asList(n1));
+
+    Rule r2 = new Rule();
+    r2.setHelp("help2");
+    r2.setHelpUrl("helpUrl2");
+    r2.setDescription("desc2");
+    r2.setImpact("critical2");
+    r2.setTags(Arrays.asList("tag21"));
+    List<Rule> violations = Arrays.asList(r1, r2);
+
+    Results results = new Results();
+    results.setUrl(webDriver.getCurrentUrl());
+    StringWriter writer = new StringWriter();
+    assertTrue(writeReadableAxeResults(scanType, results, violations, writer));
+
+    assertTrue(getReadableAxeResults(scanType, webDriver, violations));
+    assertEquals(getAxeResultString(), writer.toString());
+  }
+
+  @Test
+  public void testWriteReadableAxeResultsEmpty() throws IOException {
+    Results results = new Results();
+    results.setUrl("https://example.com/");
+    StringWriter writer = new StringWriter();
+    assertFalse(writeReadableAxeResults(scanType, results, new ArrayList<Rule>(), writer));
+
+    String expected =
+        "ACCESSIBILITY CHECK"
+            + newline()
+            + String.format("%s check for: %s", scanType.toUpperCase(), "https://example.com/")
+            + newline()
+            + "Found 0 items";
+    assertEquals(expected, writer.toString());
+  }
 }
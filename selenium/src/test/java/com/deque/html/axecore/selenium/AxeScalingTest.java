@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.extensions.WebDriverInjectorExtensions;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.deque.html.axecore.selenium.SyntheticPageServer.PageParams;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Stack;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+/**
+ * Records how scan time and result size scale along each axis of a generated page (DOM size, iframe
+ * fan-out and depth, shadow DOM depth, violation density and snippet size). Measurements are
+ * appended to target/scaling/axe-scaling.csv so runs can be compared over time; the WebDriver call
+ * and frame selection columns are only filled in for the frame restore rows.
+ */
+public class AxeScalingTest {
+  private static SyntheticPageServer server;
+  private static Writer report;
+
+  private WebDriver webDriver;
+
+  @BeforeClass
+  public static void startServer() throws IOException {
+    server = new SyntheticPageServer();
+    File dir = new File("target/scaling");
+    dir.mkdirs();
+    File csv = new File(dir, "axe-scaling.csv");
+    boolean writeHeader = !csv.exists();
+    report = new FileWriter(csv, true);
+    if (writeHeader) {
+      report.write(
+          "axis,value,params,scanMillis,resultBytes,violationNodes,webDriverCalls,frameSelections\n");
+    }
+  }
+
+  @AfterClass
+  public static void stopServer() throws IOException {
+    report.close();
+    server.stop();
+  }
+
+  @Before
+  public void setUp() {
+    ChromeOptions options = new ChromeOptions();
+    options.addArguments("--headless=new", "--disable-gpu", "--window-size=1920,1200");
+    webDriver = new ChromeDriver(options);
+    webDriver.manage().timeouts().scriptTimeout(Duration.ofMinutes(5));
+  }
+
+  @After
+  public void tearDown() {
+    webDriver.quit();
+  }
+
+  @Test
+  public void scalesWithNodeCount() throws IOException {
+    for (int nodes : new int[] {1_000, 5_000, 10_000, 50_000}) {
+      measure("nodes", nodes, new PageParams().nodes(nodes).violations(0.01));
+    }
+  }
+
+  @Test
+  public void scalesWithIframeFanOut() throws IOException {
+    for (int iframes : new int[] {1, 10, 50, 100}) {
+      measure("iframes", iframes, new PageParams().iframes(iframes).frameDepth(1).violations(0.01));
+    }
+  }
+
+  @Test
+  public void scalesWithIframeDepth() throws IOException {
+    for (int depth : new int[] {1, 2, 5, 10}) {
+      measure("frameDepth", depth, new PageParams().iframes(1).frameDepth(depth).violations(0.01));
+    }
+  }
+
+  @Test
+  public void scalesWithShadowDomDepth() throws IOException {
+    for (int depth : new int[] {1, 2, 5, 10}) {
+      measure("shadowDepth", depth, new PageParams().shadowDepth(depth).violations(0.1));
+    }
+  }
+
+  @Test
+  public void scalesWithViolationDensity() throws IOException {
+    for (double density : new double[] {0, 0.01, 0.1, 0.5}) {
+      Results results =
+          measure("violations", density, new PageParams().nodes(5_000).violations(density));
+      assertEquals(density > 0, !results.violationFree());
+    }
+  }
+
+  @Test
+  public void scalesWithSnippetSize() throws IOException {
+    for (int snippet : new int[] {0, 100, 1_000, 10_000}) {
+      measure("snippet", snippet, new PageParams().nodes(1_000).violations(0.1).snippet(snippet));
+    }
+  }
+
+  @Test
+  public void restoresFramesAfterTimeoutsWithoutReselecting() throws IOException {
+    for (int depth : new int[] {1, 2, 4, 8}) {
+      // every level has a frame that never finishes loading during the scan, so switching into it
+      // times out and the scan has to get back into the frame it came from
+      PageParams params =
+          new PageParams()
+              .nodes(10)
+              .iframes(1)
+              .frameDepth(depth)
+              .frameNodes(10)
+              .slowFrameDelay(60_000);
+      CallCounter cached = measureFrameRestore("frameRestore", depth, params, new AxeBuilder());
+      CallCounter replayed =
+          measureFrameRestore("frameRestoreReplay", depth, params, new ReplayingAxeBuilder());
+
+      // one frame selection per frame: the regular and the slow frame of every level, with no
+      // selection replayed from the top-level document after each timeout
+      assertEquals(2 * depth, cached.shadowSelects);
+      if (depth == 1) {
+        // the only timeout is in the top-level document, so there is nothing to restore
+        assertEquals(replayed.shadowSelects, cached.shadowSelects);
+        assertEquals(replayed.calls, cached.calls);
+      } else {
+        assertTrue(cached.shadowSelects < replayed.shadowSelects);
+        assertTrue(cached.calls < replayed.calls);
+      }
+    }
+  }
+
+  /**
+   * Scans a page with a fresh driver, counting the WebDriver calls and frame selections of the
+   * scan, and records them.
+   */
+  private CallCounter measureFrameRestore(
+      final String axis, final int depth, final PageParams params, final AxeBuilder builder)
+      throws IOException {
+    ChromeOptions options = new ChromeOptions();
+    options.addArguments("--headless=new", "--disable-gpu");
+    options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+    WebDriver realDriver = new ChromeDriver(options);
+    try {
+      CallCounter counter = new CallCounter();
+      WebDriver driver = new EventFiringDecorator<>(counter).decorate(realDriver);
+      driver.get(server.url(params));
+      counter.reset();
+
+      long start = System.nanoTime();
+      Results results = builder.analyze(driver);
+      long scanMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertFalse(results.getErrorMessage(), results.isErrored());
+      record(
+          axis,
+          depth,
+          params,
+          scanMillis,
+          results,
+          String.valueOf(counter.calls),
+          String.valueOf(counter.shadowSelects));
+      return counter;
+    } finally {
+      realDriver.quit();
+    }
+  }
+
+  private Results measure(final String axis, final Object value, final PageParams params)
+      throws IOException {
+    webDriver.get(server.url(params));
+
+    long start = System.nanoTime();
+    Results results = new AxeBuilder().analyze(webDriver);
+    long scanMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertFalse(results.getErrorMessage(), results.isErrored());
+    assertTrue(record(axis, value, params, scanMillis, results, "", "") > 0);
+    return results;
+  }
+
+  /**
+   * Appends a row to the report.
+   *
+   * @return the size of the serialized results
+   */
+  private static int record(
+      final String axis,
+      final Object value,
+      final PageParams params,
+      final long scanMillis,
+      final Results results,
+      final String calls,
+      final String frameSelections)
+      throws IOException {
+    int resultBytes = AxeReporter.serialize(results).length();
+    int violationNodes = 0;
+    for (Rule rule : results.getViolations()) {
+      violationNodes += rule.getNodes().size();
+    }
+    report.write(
+        String.format(
+            "%s,%s,\"%s\",%d,%d,%d,%s,%s%n",
+            axis, value, params, scanMillis, resultBytes, violationNodes, calls, frameSelections));
+    report.flush();
+    return resultBytes;
+  }
+
+  /**
+   * Restores frames after a timeout the way the builder did before it kept frame handles: a frame
+   * selection and a switch for every level, starting from the top-level document.
+   */
+  private static class ReplayingAxeBuilder extends AxeBuilder {
+    @Override
+    void restoreFrames(
+        final WebDriver webDriver,
+        final Stack<Object> frameStack,
+        final Stack<Object> frameHandles) {
+      for (Object frameSelector : frameStack) {
+        Object frame =
+            WebDriverInjectorExtensions.executeScript(
+                webDriver, AxeBuilder.shadowSelectScript, frameSelector);
+        AxeBuilder.switchToFrame(webDriver, frame);
+      }
+    }
+  }
+
+  /** counts the WebDriver calls made through a decorated driver. */
+  private static class CallCounter implements WebDriverListener {
+    private int calls;
+    private int shadowSelects;
+
+    void reset() {
+      calls = 0;
+      shadowSelects = 0;
+    }
+
+    @Override
+    public void beforeAnyCall(final Object target, final Method method, final Object[] args) {
+      calls++;
+    }
+
+    @Override
+    public void beforeExecuteScript(
+        final WebDriver driver, final String script, final Object[] args) {
+      if (script.startsWith("return axe.utils.shadowSelect(")) {
+        shadowSelects++;
+      }
+    }
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.selenium;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local fixture server that generates synthetic pages of arbitrary size. Every page is served from
+ * {@code /page} and is shaped by query parameters, so scaling tests can dial a single axis up while
+ * keeping the others fixed:
+ *
+ * <ul>
+ *   <li>{@code nodes} - number of content elements in the top-level document
+ *   <li>{@code iframes} - iframe fan-out per frame level
+ *   <li>{@code frameDepth} - levels of nested iframes
+ *   <li>{@code frameNodes} - number of content elements in every generated iframe
+ *   <li>{@code shadowDepth} - levels of nested open shadow roots
+ *   <li>{@code violations} - fraction (0..1) of content elements that violate a rule
+ *   <li>{@code snippet} - number of padding characters added to every element's html snippet
+ *   <li>{@code delay} - milliseconds the server holds the response back
+ *   <li>{@code slowFrameDelay} - when positive, every frame level that has iframes also gets one
+ *       extra iframe whose response is held back by this many milliseconds
+ * </ul>
+ */
+public class SyntheticPageServer {
+  private static final int SECTION_SIZE = 100;
+  private static final int SHADOW_LEVEL_NODES = 10;
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /**
+   * Starts the server on an ephemeral port of the loopback interface.
+   *
+   * @throws IOException if the server cannot bind
+   */
+  public SyntheticPageServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/page", this::handlePage);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /** Stops the server and its request threads. */
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Builds the URL of a generated page.
+   *
+   * @param params the page parameters
+   * @return an absolute URL served by this server
+   */
+  public String url(final PageParams params) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/page?" + params.toQuery();
+  }
+
+  private void handlePage(final HttpExchange exchange) throws IOException {
+    PageParams params = PageParams.fromQuery(exchange.getRequestURI().getRawQuery());
+    if (params.delay > 0) {
+      try {
+        Thread.sleep(params.delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+    exchange.sendResponseHeaders(200, 0);
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+      writePage(writer, params);
+    }
+  }
+
+  private void writePage(final Writer out, final PageParams params) throws IOException {
+    String padding = padding(params.snippet);
+    out.write("<!doctype html><html lang=\"en\"><head><title>Synthetic page</title></head><body>");
+    out.write("<main id=\"content\"><h1>Synthetic page</h1>");
+
+    int sections = (params.nodes + SECTION_SIZE - 1) / SECTION_SIZE;
+    int index = 0;
+    for (int section = 0; section < sections; section++) {
+      out.write("<section id=\"s" + section + "\">");
+      for (int i = 0; i < SECTION_SIZE && index < params.nodes; i++, index++) {
+        out.write(element(index, params.violations, padding));
+      }
+      out.write("</section>");
+    }
+
+    if (params.frameDepth > 0) {
+      PageParams child = params.child();
+      for (int i = 0; i < params.iframes; i++) {
+        out.write(
+            "<iframe id=\"ifr-"
+                + i
+                + "\" title=\"Generated frame "
+                + i
+                + "\" src=\"/page?"
+                + child.toQuery().replace("&", "&amp;")
+                + "\"></iframe>");
+      }
+      if (params.slowFrameDelay > 0) {
+        PageParams slow = new PageParams().nodes(1).delay(params.slowFrameDelay);
+        out.write(
+            "<iframe id=\"ifr-slow\" title=\"Slow frame\" src=\"/page?"
+                + slow.toQuery().replace("&", "&amp;")
+                + "\"></iframe>");
+      }
+    }
+
+    if (params.shadowDepth > 0) {
+      StringBuilder levelHtml = new StringBuilder();
+      for (int i = 0; i < SHADOW_LEVEL_NODES; i++) {
+        levelHtml.append(element(i, params.violations, padding));
+      }
+      out.write("<div id=\"shadow-host\"></div>");
+      out.write("<script>");
+      out.write("(function build(host, depth) {");
+      out.write("  var root = host.attachShadow({ mode: 'open' });");
+      out.write("  root.innerHTML = '" + levelHtml + "'");
+      out.write("    + (depth > 1 ? '<div class=\"shadow-host\"></div>' : '');");
+      out.write("  if (depth > 1) build(root.querySelector('.shadow-host'), depth - 1);");
+      out.write("})(document.getElementById('shadow-host'), " + params.shadowDepth + ");");
+      out.write("</script>");
+    }
+    out.write("</main></body></html>");
+  }
+
+  private static String element(final int index, final double density, final String padding) {
+    if (isViolation(index, density)) {
+      // Alternate between two cheap, well-known violations
+      return index % 2 == 0
+          ? "<img src=\"data:,\" data-pad=\"" + padding + "\">"
+          : "<input type=\"text\" data-pad=\"" + padding + "\">";
+    }
+    return "<p class=\"n\" data-pad=\"" + padding + "\">Item " + index + "</p>";
+  }
+
+  private static boolean isViolation(final int index, final double density) {
+    return density > 0 && Math.floor((index + 1) * density) > Math.floor(index * density);
+  }
+
+  private static String padding(final int size) {
+    StringBuilder sb = new StringBuilder(size);
+    for (int i = 0; i < size; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    return sb.toString();
+  }
+
+  /** Parameters describing a generated page. */
+  public static class PageParams {
+    private int nodes = 100;
+    private int iframes = 0;
+    private int frameDepth = 0;
+    private int frameNodes = 100;
+    private int shadowDepth = 0;
+    private double violations = 0;
+    private int snippet = 0;
+    private int delay = 0;
+    private int slowFrameDelay = 0;
+
+    public PageParams nodes(final int nodes) {
+      this.nodes = nodes;
+      return this;
+    }
+
+    public PageParams iframes(final int iframes) {
+      this.iframes = iframes;
+      return this;
+    }
+
+    public PageParams frameDepth(final int frameDepth) {
+      this.frameDepth = frameDepth;
+      return this;
+    }
+
+    public PageParams frameNodes(final int frameNodes) {
+      this.frameNodes = frameNodes;
+      return this;
+    }
+
+    public PageParams shadowDepth(final int shadowDepth) {
+      this.shadowDepth = shadowDepth;
+      return this;
+    }
+
+    public PageParams violations(final double violations) {
+      this.violations = violations;
+      return this;
+    }
+
+    public PageParams snippet(final int snippet) {
+      this.snippet = snippet;
+      return this;
+    }
+
+    public PageParams delay(final int delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    public PageParams slowFrameDelay(final int slowFrameDelay) {
+      this.slowFrameDelay = slowFrameDelay;
+      return this;
+    }
+
+    /**
+     * Parameters of the pages generated for this page's iframes: one level less deep, with the
+     * frame node count as their own node count.
+     */
+    PageParams child() {
+      return new PageParams()
+          .nodes(frameNodes)
+          .iframes(iframes)
+          .frameDepth(frameDepth - 1)
+          .frameNodes(frameNodes)
+          .shadowDepth(shadowDepth)
+          .violations(violations)
+          .snippet(snippet)
+          .slowFrameDelay(slowFrameDelay);
+    }
+
+    String toQuery() {
+      Map<String, Object> query = new LinkedHashMap<>();
+      query.put("nodes", nodes);
+      query.put("iframes", iframes);
+      query.put("frameDepth", frameDepth);
+      query.put("frameNodes", frameNodes);
+      query.put("shadowDepth", shadowDepth);
+      query.put("violations", violations);
+      query.put("snippet", snippet);
+      query.put("delay", delay);
+      query.put("slowFrameDelay", slowFrameDelay);
+      StringBuilder sb = new StringBuilder();
+      for (Map.Entry<String, Object> entry : query.entrySet()) {
+        if (sb.length() > 0) {
+          sb.append('&');
+        }
+        sb.append(entry.getKey()).append('=').append(entry.getValue());
+      }
+      return sb.toString();
+    }
+
+    static PageParams fromQuery(final String rawQuery) {
+      Map<String, String> query = new HashMap<>();
+      if (rawQuery != null) {
+        for (String pair : rawQuery.split("&")) {
+          int eq = pair.indexOf('=');
+          if (eq > 0) {
+            query.put(
+                pair.substring(0, eq),
+                URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+          }
+        }
+      }
+      PageParams params = new PageParams();
+      params.nodes = Integer.parseInt(query.getOrDefault("nodes", "100"));
+      params.iframes = Integer.parseInt(query.getOrDefault("iframes", "0"));
+      params.frameDepth = Integer.parseInt(query.getOrDefault("frameDepth", "0"));
+      params.frameNodes = Integer.parseInt(query.getOrDefault("frameNodes", "100"));
+      params.shadowDepth = Integer.parseInt(query.getOrDefault("shadowDepth", "0"));
+      params.violations = Double.parseDouble(query.getOrDefault("violations", "0"));
+      params.snippet = Integer.parseInt(query.getOrDefault("snippet", "0"));
+      params.delay = Integer.parseInt(query.getOrDefault("delay", "0"));
+      params.slowFrameDelay = Integer.parseInt(query.getOrDefault("slowFrameDelay", "0"));
+      return params;
+    }
+
+    @Override
+    public String toString() {
+      return toQuery();
+    }
+  }
+}
@@ -44,72 +44,34 @@ public class DynamicContentTest {
     public void testDynamicContentAndModalAccessibility() {
         System.out.println("Navigating to test page: " + testPageUrl);
         driver.get(testPageUrl);
-        try {
-            Thread.sleep(6000); // Wait 6 seconds after navigating
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
 
         try {
             // --- 1. Initial Scan of the Page ---
             System.out.println("\n--- Performing Initial Accessibility Scan ---");
-            AxeBuilder axeBuilder = new AxeBuilder();
+            // Each scan starts once the page has been stable for half a second, rather than after a fixed sleep
+            AxeBuilder axeBuilder = new AxeBuilder()
+                    .waitForQuiescence(Duration.ofMillis(500), Duration.ofSeconds(10));
             Results initialResults = axeBuilder.analyze(driver);
             System.out.println("Initial scan violations: " + initialResults.getViolations().size());
             generateHtmlReport(initialResults, "initial_page_scan");
             exportJsonResults(initialResults, "initial_page_scan");
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after initial scan
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             // --- 2. Scan After Dynamic Content Loads ---
             dynamicContentPage.clickLoadDynamicContent();
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after clicking load dynamic content
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
             dynamicContentPage.waitForDynamicContent();
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after dynamic content is visible
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
             System.out.println("\n--- Performing Dynamic Content Area Scan ---");
             // Scan only the newly loaded dynamic content area
             Results dynamicResults = axeBuilder.include("#dynamicContentArea").analyze(driver);
             System.out.println("Dynamic content scan violations: " + dynamicResults.getViolations().size());
             generateHtmlReport(dynamicResults, "dynamic_content_scan");
             exportJsonResults(dynamicResults, "dynamic_content_scan");
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after dynamic content scan
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             // --- 3. Scan After Modal Opens ---
             dynamicContentPage.clickOpenModal();
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after clicking open modal
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
             dynamicContentPage.waitForModal();
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after modal is visible
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             // Type text into the modal feedback field
             dynamicContentPage.enterModalFeedback("This is a test feedback message.");
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after typing feedback
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             System.out.println("\n--- Performing Modal Dialog Scan ---");
             // Scan only the modal dialog
@@ -117,26 +79,11 @@ public class DynamicContentTest {
             System.out.println("Modal dialog scan violations: " + modalResults.getViolations().size());
             generateHtmlReport(modalResults, "modal_dialog_scan");
             exportJsonResults(modalResults, "modal_dialog_scan");
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after modal scan
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             // Close the modal
             dynamicContentPage.clickCloseModal();
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after clicking close modal
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
             dynamicContentPage.waitForModalToClose();
             System.out.println("\nModal dialog closed.");
-            try {
-                Thread.sleep(6000); // Wait 6 seconds after modal closes
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
 
             // Final check: Assertions based on collected results
             // You would typically assert that violation counts are acceptable (e.g., all 0)
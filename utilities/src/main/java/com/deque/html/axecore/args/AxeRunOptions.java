@@ -60,6 +60,9 @@ public class AxeRunOptions {
   /** Returns xpath selectors for elements. */
   private Boolean xpath;
 
+  /** Measures the time each rule takes, with the browser performance API. */
+  private Boolean performanceTimer;
+
   /**
    * gets the run only property.
    *
@@ -218,4 +221,24 @@ public class AxeRunOptions {
   public void setFrameWaitTimeInMilliseconds(final Integer newFrameWaitTime) {
     this.frameWaitTimeInMilliseconds = newFrameWaitTime;
   }
+
+  /**
+   * gets if the performance timer is on.
+   *
+   * @return the bool if rule timings are measured
+   */
+  @JsonProperty(value = "performanceTimer")
+  public Boolean getPerformanceTimer() {
+    return this.performanceTimer;
+  }
+
+  /**
+   * sets the performance timer.
+   *
+   * @param newPerformanceTimer bool if rule timings are measured
+   */
+  @JsonProperty(value = "performanceTimer")
+  public void setPerformanceTimer(final Boolean newPerformanceTimer) {
+    this.performanceTimer = newPerformanceTimer;
+  }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.args;
+
+/**
+ * Immutable snapshot of the context, options and frame settings of a scan, with the context and
+ * options serialized to JSON once. Build one from a configured AxeBuilder with buildProfile() and
+ * share it between any number of concurrent scans: nothing in a profile changes after it is built,
+ * and later changes to the builder do not affect it.
+ */
+public final class ScanProfile {
+  /** the serialized axe context. */
+  private final String contextJson;
+
+  /** the serialized axe run options. */
+  private final String optionsJson;
+
+  /** whether to use axe.run instead of axe.runPartial and axe.finishRun. */
+  private final boolean legacyMode;
+
+  /** whether to scan the top-level document only. */
+  private final boolean iframeTestingDisabled;
+
+  /** whether to read the rule timings of the axe performance timer. */
+  private final boolean performanceTimer;
+
+  /**
+   * creates a profile.
+   *
+   * @param contextJson the serialized axe context
+   * @param optionsJson the serialized axe run options
+   * @param legacyMode whether to use axe.run instead of axe.runPartial and axe.finishRun
+   * @param iframeTestingDisabled whether to scan the top-level document only
+   */
+  public ScanProfile(
+      final String contextJson,
+      final String optionsJson,
+      final boolean legacyMode,
+      final boolean iframeTestingDisabled) {
+    this(contextJson, optionsJson, legacyMode, iframeTestingDisabled, false);
+  }
+
+  /**
+   * creates a profile.
+   *
+   * @param contextJson the serialized axe context
+   * @param optionsJson the serialized axe run options
+   * @param legacyMode whether to use axe.run instead of axe.runPartial and axe.finishRun
+   * @param iframeTestingDisabled whether to scan the top-level document only
+   * @param performanceTimer whether to read the rule timings of the axe performance timer, which
+   *     the options must turn on
+   */
+  public ScanProfile(
+      final String contextJson,
+      final String optionsJson,
+      final boolean legacyMode,
+      final boolean iframeTestingDisabled,
+      final boolean performanceTimer) {
+    if (contextJson == null || optionsJson == null) {
+      throw new IllegalArgumentException("contextJson and optionsJson are required");
+    }
+    this.contextJson = contextJson;
+    this.optionsJson = optionsJson;
+    this.legacyMode = legacyMode;
+    this.iframeTestingDisabled = iframeTestingDisabled;
+    this.performanceTimer = performanceTimer;
+  }
+
+  /**
+   * gets the serialized axe context.
+   *
+   * @return the context as JSON
+   */
+  public String getContextJson() {
+    return contextJson;
+  }
+
+  /**
+   * gets the serialized axe run options.
+   *
+   * @return the options as JSON
+   */
+  public String getOptionsJson() {
+    return optionsJson;
+  }
+
+  /**
+   * gets whether axe.run is used instead of axe.runPartial and axe.finishRun.
+   *
+   * @return whether legacy mode is on
+   */
+  public boolean isLegacyMode() {
+    return legacyMode;
+  }
+
+  /**
+   * gets whether only the top-level document is scanned.
+   *
+   * @return whether iframe testing is disabled
+   */
+  public boolean isIframeTestingDisabled() {
+    return iframeTestingDisabled;
+  }
+
+  /**
+   * gets whether the rule timings of the axe performance timer are read.
+   *
+   * @return whether the performance timer is on
+   */
+  public boolean isPerformanceTimer() {
+    return performanceTimer;
+  }
+}
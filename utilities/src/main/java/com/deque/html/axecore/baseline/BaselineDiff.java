@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The difference between the violations of a baseline scan and a current scan. Violations are
+ * matched by {@link ViolationFingerprint}, so a node is unchanged when the same rule reports it at
+ * the same target with the same html. Duplicate fingerprints are matched one for one.
+ */
+public final class BaselineDiff {
+  private final List<FingerprintedViolation> added;
+  private final List<FingerprintedViolation> removed;
+  private final List<FingerprintedViolation> unchanged;
+
+  private BaselineDiff(
+      final List<FingerprintedViolation> added,
+      final List<FingerprintedViolation> removed,
+      final List<FingerprintedViolation> unchanged) {
+    this.added = Collections.unmodifiableList(added);
+    this.removed = Collections.unmodifiableList(removed);
+    this.unchanged = Collections.unmodifiableList(unchanged);
+  }
+
+  /**
+   * diffs the violations of two scans in time linear in the number of violation nodes.
+   *
+   * @param baseline the violations of the baseline scan, for example from the main branch
+   * @param current the violations of the current scan
+   * @return the added, removed and unchanged violation nodes
+   */
+  public static BaselineDiff compute(final List<Rule> baseline, final List<Rule> current) {
+    List<FingerprintedViolation> baselineViolations = fingerprint(baseline);
+    LongIntHashMap remaining = new LongIntHashMap(baselineViolations.size());
+    for (FingerprintedViolation violation : baselineViolations) {
+      remaining.increment(violation.getFingerprint());
+    }
+
+    List<FingerprintedViolation> added = new ArrayList<>();
+    List<FingerprintedViolation> unchanged = new ArrayList<>();
+    for (FingerprintedViolation violation : fingerprint(current)) {
+      if (remaining.decrement(violation.getFingerprint())) {
+        unchanged.add(violation);
+      } else {
+        added.add(violation);
+      }
+    }
+
+    List<FingerprintedViolation> removed = new ArrayList<>();
+    for (FingerprintedViolation violation : baselineViolations) {
+      if (remaining.decrement(violation.getFingerprint())) {
+        removed.add(violation);
+      }
+    }
+    return new BaselineDiff(added, removed, unchanged);
+  }
+
+  /**
+   * gets the violation nodes of the current scan that are not in the baseline.
+   *
+   * @return the added violations
+   */
+  public List<FingerprintedViolation> getAdded() {
+    return added;
+  }
+
+  /**
+   * gets the violation nodes of the baseline that are no longer reported.
+   *
+   * @return the removed violations
+   */
+  public List<FingerprintedViolation> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * gets the violation nodes of the current scan that are also in the baseline.
+   *
+   * @return the unchanged violations
+   */
+  public List<FingerprintedViolation> getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * checks whether the current scan reports violations that are not in the baseline.
+   *
+   * @return true when there are added violations
+   */
+  public boolean hasNewViolations() {
+    return !added.isEmpty();
+  }
+
+  private static List<FingerprintedViolation> fingerprint(final List<Rule> rules) {
+    List<FingerprintedViolation> violations = new ArrayList<>();
+    if (rules == null) {
+      return violations;
+    }
+    for (Rule rule : rules) {
+      for (CheckedNode node : rule.getNodes()) {
+        violations.add(new FingerprintedViolation(rule.getId(), node));
+      }
+    }
+    return violations;
+  }
+
+  @Override
+  public String toString() {
+    return "BaselineDiff{"
+        + "added="
+        + added.size()
+        + ", removed="
+        + removed.size()
+        + ", unchanged="
+        + unchanged.size()
+        + '}';
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A read-only set of accepted violation fingerprints, memory-mapped from disk and queried without
+ * deserializing any results.
+ *
+ * <p>The file starts with a header (the magic bytes {@code AXEB}, the format version, the number of
+ * rules, the number of fingerprints and the offset of the fingerprint table), followed by a rule
+ * directory (for each rule, its UTF-8 id, the index of its first fingerprint and its fingerprint
+ * count) and the fingerprint table, in which the fingerprints of each rule are sorted so that
+ * membership is a binary search. Files are limited to 2 GB, about 250 million fingerprints.
+ */
+public final class BaselineStore implements Closeable {
+  private static final int MAGIC = 0x41584542; // "AXEB"
+  private static final int VERSION = 1;
+
+  private final MappedByteBuffer buffer;
+  private final long tableOffset;
+  private final int size;
+
+  /** the index of the first fingerprint and the fingerprint count, per rule id. */
+  private final Map<String, int[]> directory;
+
+  private BaselineStore(final MappedByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < 24 || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a baseline store file.");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported baseline store version " + version + ".");
+    }
+    int ruleCount = buffer.getInt(8);
+    this.size = buffer.getInt(12);
+    this.tableOffset = buffer.getLong(16);
+
+    this.directory = new HashMap<>(ruleCount * 2);
+    int position = 24;
+    for (int i = 0; i < ruleCount; i++) {
+      int idLength = buffer.getShort(position) & 0xffff;
+      byte[] id = new byte[idLength];
+      for (int b = 0; b < idLength; b++) {
+        id[b] = buffer.get(position + 2 + b);
+      }
+      position += 2 + idLength;
+      directory.put(
+          new String(id, StandardCharsets.UTF_8),
+          new int[] {buffer.getInt(position), buffer.getInt(position + 4)});
+      position += 8;
+    }
+    if (tableOffset + (long) size * Long.BYTES > buffer.capacity()) {
+      throw new IOException("Truncated baseline store file.");
+    }
+  }
+
+  /**
+   * memory-maps a baseline store file.
+   *
+   * @param path the file written by {@link Writer#write(Path)}
+   * @return the store
+   * @throws IOException if the file cannot be read or is not a baseline store
+   */
+  public static BaselineStore open(final Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new BaselineStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * creates a writer for a new baseline store.
+   *
+   * @return an empty writer
+   */
+  public static Writer writer() {
+    return new Writer();
+  }
+
+  /**
+   * checks whether a fingerprint was accepted for a rule.
+   *
+   * @param ruleId the rule id
+   * @param fingerprint the {@link ViolationFingerprint} of the node
+   * @return true when the violation is in the baseline
+   */
+  public boolean contains(final String ruleId, final long fingerprint) {
+    int[] range = directory.get(ruleId);
+    if (range == null) {
+      return false;
+    }
+    int low = range[0];
+    int high = range[0] + range[1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long value = buffer.getLong((int) (tableOffset + (long) mid * Long.BYTES));
+      if (value < fingerprint) {
+        low = mid + 1;
+      } else if (value > fingerprint) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * checks whether a violation node was accepted for a rule.
+   *
+   * @param ruleId the rule id
+   * @param node the violation node
+   * @return true when the violation is in the baseline
+   */
+  public boolean contains(final String ruleId, final CheckedNode node) {
+    return contains(ruleId, ViolationFingerprint.of(ruleId, node.getTarget(), node.getHtml()));
+  }
+
+  /**
+   * removes the violation nodes that are in the baseline. The nodes of each rule are updated in
+   * place, and rules left without nodes are dropped.
+   *
+   * @param violations the violations of a scan
+   * @return the violations that are not in the baseline
+   */
+  public List<Rule> removeKnownViolations(final List<Rule> violations) {
+    List<Rule> remaining = new ArrayList<>();
+    if (violations == null) {
+      return remaining;
+    }
+    for (Rule rule : violations) {
+      if (!directory.containsKey(rule.getId())) {
+        remaining.add(rule);
+        continue;
+      }
+      List<CheckedNode> nodes = new ArrayList<>();
+      for (CheckedNode node : rule.getNodes()) {
+        if (!contains(rule.getId(), node)) {
+          nodes.add(node);
+        }
+      }
+      if (!nodes.isEmpty()) {
+        rule.setNodes(nodes);
+        remaining.add(rule);
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * gets the ids of the rules with accepted violations.
+   *
+   * @return the rule ids
+   */
+  public Set<String> getRuleIds() {
+    return Collections.unmodifiableSet(directory.keySet());
+  }
+
+  /**
+   * gets the number of accepted violations.
+   *
+   * @return the number of fingerprints in the store
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Releases the store. The mapping itself is released by the garbage collector, so the store must
+   * not be used after it is closed.
+   */
+  @Override
+  public void close() {
+    directory.clear();
+  }
+
+  /** Collects accepted violations and writes them as a baseline store file. */
+  public static final class Writer {
+    private final Map<String, long[]> fingerprints = new TreeMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    private Writer() {}
+
+    /**
+     * accepts a violation fingerprint.
+     *
+     * @param ruleId the rule id
+     * @param fingerprint the {@link ViolationFingerprint} of the node
+     * @return this
+     */
+    public Writer add(final String ruleId, final long fingerprint) {
+      int count = counts.getOrDefault(ruleId, 0);
+      long[] values = fingerprints.get(ruleId);
+      if (values == null) {
+        values = new long[16];
+      } else if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count] = fingerprint;
+      fingerprints.put(ruleId, values);
+      counts.put(ruleId, count + 1);
+      return this;
+    }
+
+    /**
+     * accepts every violation node of a scan.
+     *
+     * @param violations the violations of a scan
+     * @return this
+     */
+    public Writer addViolations(final List<Rule> violations) {
+      if (violations != null) {
+        for (Rule rule : violations) {
+          for (CheckedNode node : rule.getNodes()) {
+            long fingerprint =
+                ViolationFingerprint.of(rule.getId(), node.getTarget(), node.getHtml());
+            add(rule.getId(), fingerprint);
+          }
+        }
+      }
+      return this;
+    }
+
+    /**
+     * writes the accepted violations, replacing any existing file.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path path) throws IOException {
+      Map<String, long[]> sorted = new TreeMap<>();
+      int total = 0;
+      long directoryBytes = 0;
+      for (Map.Entry<String, long[]> entry : fingerprints.entrySet()) {
+        long[] values = Arrays.copyOf(entry.getValue(), counts.get(entry.getKey()));
+        Arrays.sort(values);
+        values = distinct(values);
+        sorted.put(entry.getKey(), values);
+        total += values.length;
+        directoryBytes += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 8;
+      }
+
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(sorted.size());
+        out.writeInt(total);
+        out.writeLong(24 + directoryBytes);
+
+        int start = 0;
+        for (Map.Entry<String, long[]> entry : sorted.entrySet()) {
+          byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+          out.writeShort(id.length);
+          out.write(id);
+          out.writeInt(start);
+          out.writeInt(entry.getValue().length);
+          start += entry.getValue().length;
+        }
+        for (long[] values : sorted.values()) {
+          for (long value : values) {
+            out.writeLong(value);
+          }
+        }
+      }
+    }
+
+    private static long[] distinct(final long[] sorted) {
+      int length = 0;
+      for (int i = 0; i < sorted.length; i++) {
+        if (i == 0 || sorted[i] != sorted[i - 1]) {
+          sorted[length++] = sorted[i];
+        }
+      }
+      return Arrays.copyOf(sorted, length);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import com.deque.html.axecore.results.CheckedNode;
+
+/** A violation node together with the rule it was reported for and its fingerprint. */
+public final class FingerprintedViolation {
+  private final String ruleId;
+  private final CheckedNode node;
+  private final long fingerprint;
+
+  /**
+   * fingerprints a violation node.
+   *
+   * @param ruleId the id of the rule the node was reported for
+   * @param node the violation node
+   */
+  public FingerprintedViolation(final String ruleId, final CheckedNode node) {
+    this.ruleId = ruleId;
+    this.node = node;
+    this.fingerprint = ViolationFingerprint.of(ruleId, node.getTarget(), node.getHtml());
+  }
+
+  /**
+   * gets the id of the rule the node was reported for.
+   *
+   * @return the rule id
+   */
+  public String getRuleId() {
+    return ruleId;
+  }
+
+  /**
+   * gets the violation node.
+   *
+   * @return the node
+   */
+  public CheckedNode getNode() {
+    return node;
+  }
+
+  /**
+   * gets the fingerprint of the node.
+   *
+   * @return the fingerprint
+   */
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  @Override
+  public String toString() {
+    return "FingerprintedViolation{"
+        + "ruleId='"
+        + ruleId
+        + '\''
+        + ", target="
+        + node.getTarget()
+        + ", fingerprint="
+        + Long.toHexString(fingerprint)
+        + '}';
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+/**
+ * Open addressing hash map from fingerprints to positive ints (counts or indices), avoiding a boxed
+ * entry per node when indexing millions of violations.
+ */
+public final class LongIntHashMap {
+  private static final int EMPTY = 0;
+
+  private long[] keys;
+  /** the count for each slot; 0 marks an empty slot and -1 a key whose count was used up. */
+  private int[] values;
+  private int occupied;
+
+  /**
+   * creates an empty map.
+   *
+   * @param expectedSize the number of keys to size the map for; it grows beyond that as needed
+   */
+  public LongIntHashMap(final int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    keys = new long[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   * gets the count of a key.
+   *
+   * @param key the key
+   * @return the count, or 0 when absent
+   */
+  public int get(final long key) {
+    return Math.max(0, values[slot(keys, values, key)]);
+  }
+
+  /**
+   * adds one to the count of a key.
+   *
+   * @param key the key
+   */
+  public void increment(final long key) {
+    int slot = slot(keys, values, key);
+    if (values[slot] == EMPTY) {
+      keys[slot] = key;
+      values[slot] = 1;
+      if (++occupied * 2 > keys.length) {
+        grow();
+      }
+    } else {
+      values[slot] = Math.max(0, values[slot]) + 1;
+    }
+  }
+
+  /**
+   * removes one from the count of a key. A key whose count reaches 0 keeps its slot, so that
+   * probing for other keys is not broken.
+   *
+   * @param key the key
+   * @return true when the key had a positive count
+   */
+  public boolean decrement(final long key) {
+    int slot = slot(keys, values, key);
+    if (values[slot] <= 0) {
+      return false;
+    }
+    values[slot] = values[slot] == 1 ? -1 : values[slot] - 1;
+    return true;
+  }
+
+  /**
+   * associates a value with a key that has none.
+   *
+   * @param key the key
+   * @param value the value, which must be positive
+   * @return the value already associated with the key, or 0 when the value was added
+   */
+  public int putIfAbsent(final long key, final int value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException("value must be positive");
+    }
+    int slot = slot(keys, values, key);
+    if (values[slot] > 0) {
+      return values[slot];
+    }
+    if (values[slot] == EMPTY) {
+      keys[slot] = key;
+      values[slot] = value;
+      if (++occupied * 2 > keys.length) {
+        grow();
+      }
+    } else {
+      values[slot] = value;
+    }
+    return 0;
+  }
+
+  private static int slot(final long[] keys, final int[] values, final long key) {
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (values[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int mix(final long key) {
+    long h = key * 0x9e3779b97f4a7c15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldValues.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != EMPTY) {
+        int slot = slot(keys, values, oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import java.util.List;
+
+/**
+ * Computes stable 64-bit fingerprints of violation nodes from the rule id, the normalized target
+ * and a hash of the normalized html snippet. Normalization collapses runs of whitespace so that
+ * re-indenting a page does not change its fingerprints.
+ */
+public final class ViolationFingerprint {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /** separates the parts of a fingerprint so that ("ab", "c") and ("a", "bc") differ. */
+  private static final char SEPARATOR = '\u0000';
+
+  /** separates the selectors of a frame or shadow DOM target path. */
+  private static final String PATH_SEPARATOR = " >>> ";
+
+  private ViolationFingerprint() {}
+
+  /**
+   * computes the fingerprint of a node.
+   *
+   * @param ruleId the id of the rule the node was reported for
+   * @param target the node target, a selector or a (nested) list of selectors
+   * @param html the html snippet of the node, may be null
+   * @return the fingerprint
+   */
+  public static long of(final String ruleId, final Object target, final String html) {
+    long hash = FNV_OFFSET_BASIS;
+    hash = update(hash, ruleId == null ? "" : ruleId);
+    hash = update(hash, SEPARATOR);
+    hash = update(hash, normalizeTarget(target));
+    hash = update(hash, SEPARATOR);
+    long htmlHash = hashHtml(html);
+    for (int shift = 0; shift < 64; shift += 8) {
+      hash = (hash ^ ((htmlHash >>> shift) & 0xff)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * normalizes a node target to a single string: the selectors of a frame or shadow DOM path are
+   * joined in order and whitespace is collapsed.
+   *
+   * @param target the node target, a selector or a (nested) list of selectors
+   * @return the normalized target
+   */
+  public static String normalizeTarget(final Object target) {
+    StringBuilder sb = new StringBuilder();
+    appendTarget(sb, target);
+    return sb.toString();
+  }
+
+  /**
+   * hashes an html snippet after collapsing whitespace.
+   *
+   * @param html the html snippet, may be null
+   * @return the 64-bit FNV-1a hash of the normalized snippet
+   */
+  public static long hashHtml(final String html) {
+    return update(FNV_OFFSET_BASIS, collapseWhitespace(html == null ? "" : html));
+  }
+
+  private static void appendTarget(final StringBuilder sb, final Object target) {
+    if (target instanceof List) {
+      boolean first = true;
+      for (Object part : (List<?>) target) {
+        if (!first) {
+          sb.append(PATH_SEPARATOR);
+        }
+        appendTarget(sb, part);
+        first = false;
+      }
+    } else if (target != null) {
+      sb.append(collapseWhitespace(target.toString()));
+    }
+  }
+
+  private static String collapseWhitespace(final String value) {
+    StringBuilder sb = new StringBuilder(value.length());
+    boolean pendingSpace = false;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = sb.length() > 0;
+      } else {
+        if (pendingSpace) {
+          sb.append(' ');
+          pendingSpace = false;
+        }
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static long update(long hash, final String value) {
+    for (int i = 0; i < value.length(); i++) {
+      hash = update(hash, value.charAt(i));
+    }
+    return hash;
+  }
+
+  private static long update(long hash, final char c) {
+    hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+    return (hash ^ (c >>> 8)) * FNV_PRIME;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes results in Smile, the binary form of JSON, with back-references to repeated property
+ * names and to repeated string values (rule ids, impacts, tags, check messages), which makes them
+ * several times smaller than JSON. A Smile document holds the same model as the JSON written by
+ * {@code AxeReporter.serialize}: {@code Results} and {@code AxeResults} decode from either, and
+ * documents can be transcoded between the two formats without binding them to the model.
+ */
+public final class SmileResultsCodec {
+  private static final SmileFactory SMILE_FACTORY =
+      SmileFactory.builder()
+          .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+          .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+          .build();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper(SMILE_FACTORY);
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  static {
+    MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+  }
+
+  private SmileResultsCodec() {}
+
+  /**
+   * encodes results.
+   *
+   * @param results the {@code Results} or {@code AxeResults} to encode
+   * @return the Smile document
+   * @throws IOException if the results cannot be encoded
+   */
+  public static byte[] encode(final Object results) throws IOException {
+    return MAPPER.writeValueAsBytes(results);
+  }
+
+  /**
+   * encodes results to a stream, which is left open.
+   *
+   * @param results the {@code Results} or {@code AxeResults} to encode
+   * @param out the stream to write to
+   * @throws IOException if the results cannot be written
+   */
+  public static void encode(final Object results, final OutputStream out) throws IOException {
+    try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      MAPPER.writeValue(generator, results);
+    }
+  }
+
+  /**
+   * decodes results.
+   *
+   * @param data the Smile document
+   * @param type the results class, {@code Results} or {@code AxeResults}
+   * @param <T> the results type
+   * @return the results
+   * @throws IOException if the document cannot be decoded
+   */
+  public static <T> T decode(final byte[] data, final Class<T> type) throws IOException {
+    return MAPPER.readValue(data, type);
+  }
+
+  /**
+   * decodes results from a stream.
+   *
+   * @param in the stream holding the Smile document
+   * @param type the results class, {@code Results} or {@code AxeResults}
+   * @param <T> the results type
+   * @return the results
+   * @throws IOException if the document cannot be decoded
+   */
+  public static <T> T decode(final InputStream in, final Class<T> type) throws IOException {
+    return MAPPER.readValue(in, type);
+  }
+
+  /**
+   * Transcodes a JSON document to Smile token by token, so documents of any size can be converted.
+   *
+   * @param json the stream holding the JSON document
+   * @param smile the stream to write the Smile document to, which is left open
+   * @throws IOException if the document cannot be transcoded
+   */
+  public static void jsonToSmile(final InputStream json, final OutputStream smile)
+      throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(json);
+        JsonGenerator generator = SMILE_FACTORY.createGenerator(smile)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      parser.nextToken();
+      generator.copyCurrentStructure(parser);
+    }
+  }
+
+  /**
+   * Transcodes a Smile document to JSON token by token, so documents of any size can be converted.
+   *
+   * @param smile the stream holding the Smile document
+   * @param json the stream to write the JSON document to, which is left open
+   * @throws IOException if the document cannot be transcoded
+   */
+  public static void smileToJson(final InputStream smile, final OutputStream json)
+      throws IOException {
+    try (JsonParser parser = SMILE_FACTORY.createParser(smile);
+        JsonGenerator generator = JSON_FACTORY.createGenerator(json, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      parser.nextToken();
+      generator.copyCurrentStructure(parser);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Narrows the rules of repeated scans of a page template to the rules that apply to it. The results
+ * of each scan are recorded per template (by default, the url without its query and with the path
+ * segments holding digits replaced by {@code *}); a rule found inapplicable in a number of scans in
+ * a row is left out of the next scans of the template, and every few scans the template is scanned
+ * with every rule again, so rules that start to apply come back. A selector can be shared between
+ * threads and builders.
+ *
+ * <p>The rules left out of a narrowed scan are not listed in its results at all, not even as
+ * inapplicable.
+ */
+public final class AdaptiveRuleSelector {
+  private final int fullScanInterval;
+  private final int inapplicableScans;
+  private final Function<String, String> templateOf;
+  private final Map<String, Template> templates = new HashMap<>();
+
+  /** the scans and the rule statistics of a template. */
+  private static final class Template {
+    private long scans;
+
+    /** the number of scans in a row each rule was inapplicable in, by rule id. */
+    private final Map<String, Integer> inapplicableStreaks = new TreeMap<>();
+  }
+
+  /**
+   * creates a selector that scans each template with every rule once every 10 scans, and leaves
+   * out the rules inapplicable in the last 3 scans.
+   */
+  public AdaptiveRuleSelector() {
+    this(10, 3);
+  }
+
+  /**
+   * creates a selector that groups urls by {@link #pathTemplate(String)}.
+   *
+   * @param fullScanInterval scan each template with every rule once every this many scans
+   * @param inapplicableScans leave out the rules inapplicable in this many scans in a row
+   */
+  public AdaptiveRuleSelector(final int fullScanInterval, final int inapplicableScans) {
+    this(fullScanInterval, inapplicableScans, AdaptiveRuleSelector::pathTemplate);
+  }
+
+  /**
+   * creates a selector.
+   *
+   * @param fullScanInterval scan each template with every rule once every this many scans
+   * @param inapplicableScans leave out the rules inapplicable in this many scans in a row
+   * @param templateOf gets the template of a url, such as the route of a single page application
+   */
+  public AdaptiveRuleSelector(
+      final int fullScanInterval,
+      final int inapplicableScans,
+      final Function<String, String> templateOf) {
+    if (fullScanInterval < 1 || inapplicableScans < 1) {
+      throw new IllegalArgumentException("fullScanInterval and inapplicableScans must be positive");
+    }
+    if (templateOf == null) {
+      throw new IllegalArgumentException("templateOf is required");
+    }
+    this.fullScanInterval = fullScanInterval;
+    this.inapplicableScans = inapplicableScans;
+    this.templateOf = templateOf;
+  }
+
+  /**
+   * Gets the template of a url: its host and path, with the path segments holding digits (such as
+   * ids and dates) replaced by {@code *}.
+   *
+   * @param url the url of a page
+   * @return the template of the page
+   */
+  public static String pathTemplate(final String url) {
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException e) {
+      return url;
+    }
+    StringBuilder template = new StringBuilder();
+    if (uri.getHost() != null) {
+      template.append(uri.getHost());
+      if (uri.getPort() != -1) {
+        template.append(':').append(uri.getPort());
+      }
+    }
+    String path = uri.getRawPath();
+    if (path == null) {
+      return url;
+    }
+    for (String segment : path.split("/", -1)) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      template.append('/').append(segment.matches(".*\\d.*") ? "*" : segment);
+    }
+    return template.toString();
+  }
+
+  /**
+   * Selects the rules of the next scan of a page. Every call counts as one scan of its template.
+   *
+   * @param url the url of the page
+   * @return the ids of the rules to run, or null to run every rule
+   */
+  public synchronized List<String> selectRules(final String url) {
+    Template template = templates.computeIfAbsent(templateOf.apply(url), key -> new Template());
+    template.scans++;
+    if (template.inapplicableStreaks.isEmpty() || template.scans % fullScanInterval == 0) {
+      return null;
+    }
+    List<String> rules = new ArrayList<>();
+    for (Map.Entry<String, Integer> streak : template.inapplicableStreaks.entrySet()) {
+      if (streak.getValue() < inapplicableScans) {
+        rules.add(streak.getKey());
+      }
+    }
+    // axe needs at least one rule, so a template that nothing applies to is scanned in full
+    return rules.isEmpty() ? null : rules;
+  }
+
+  /**
+   * records which rules applied to a page.
+   *
+   * @param url the url of the page
+   * @param results the results of its scan
+   */
+  public void record(final String url, final Results results) {
+    record(
+        url,
+        results.getViolations(),
+        results.getPasses(),
+        results.getIncomplete(),
+        results.getInapplicable());
+  }
+
+  /**
+   * records which rules applied to a page.
+   *
+   * @param url the url of the page
+   * @param results the results of its scan
+   */
+  public void record(final String url, final AxeResults results) {
+    record(
+        url,
+        results.getViolations(),
+        results.getPasses(),
+        results.getIncomplete(),
+        results.getInapplicable());
+  }
+
+  private synchronized void record(
+      final String url,
+      final List<Rule> violations,
+      final List<Rule> passes,
+      final List<Rule> incomplete,
+      final List<Rule> inapplicable) {
+    Template template = templates.computeIfAbsent(templateOf.apply(url), key -> new Template());
+    if (inapplicable != null) {
+      for (Rule rule : inapplicable) {
+        template.inapplicableStreaks.merge(rule.getId(), 1, Integer::sum);
+      }
+    }
+    for (List<Rule> applicable : Arrays.asList(violations, passes, incomplete)) {
+      if (applicable == null) {
+        continue;
+      }
+      for (Rule rule : applicable) {
+        template.inapplicableStreaks.put(rule.getId(), 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.baseline.LongIntHashMap;
+import com.deque.html.axecore.baseline.ViolationFingerprint;
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deduplicates violations across the pages of a crawl. Violation nodes are grouped by their {@link
+ * ViolationFingerprint} (rule id, normalized target and html hash), so a header or footer violation
+ * reported on every page is kept once, with the list of pages it occurs on.
+ *
+ * <p>The page urls, the canonical node of each group and the pages each group occurs on are
+ * written to temporary files as they are added; only the fingerprint index and a few counters per
+ * group stay on the heap. {@link #writeTo(OutputStream)} reads them back a bounded number of page
+ * lists at a time. Closing the aggregator deletes the files.
+ */
+public final class CrawlAggregator implements Closeable {
+  /** the number of page indices read back into memory at a time, by default. */
+  private static final int MAX_PAGES_IN_MEMORY = 1 << 20;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final int maxPagesInMemory;
+
+  /** the index of the group plus one, per fingerprint. */
+  private final LongIntHashMap index;
+
+  private int pageCount;
+  private int groupCount;
+  private long nodeCount;
+
+  /** the page count, occurrence count and last page of each group, by group index. */
+  private int[] groupPageCounts;
+
+  private int[] groupOccurrences;
+  private int[] groupLastPages;
+
+  /** the page urls, as a sequence of JSON strings. */
+  private final Path pagesFile;
+
+  private final JsonGenerator pagesOut;
+
+  /** the rule id, fingerprint and canonical node of each group, as a sequence of JSON objects. */
+  private final Path groupsFile;
+
+  private final JsonGenerator groupsOut;
+
+  /** the group and page index of each page a group occurs on, as pairs of ints. */
+  private final Path occurrencesFile;
+
+  private final DataOutputStream occurrencesOut;
+  private long occurrenceCount;
+
+  /** creates an empty aggregator. */
+  public CrawlAggregator() {
+    this(1024);
+  }
+
+  /**
+   * creates an empty aggregator.
+   *
+   * @param expectedGroups the number of distinct violations to size the index for
+   */
+  public CrawlAggregator(final int expectedGroups) {
+    this(expectedGroups, MAX_PAGES_IN_MEMORY);
+  }
+
+  CrawlAggregator(final int expectedGroups, final int maxPagesInMemory) {
+    if (maxPagesInMemory < 1) {
+      throw new IllegalArgumentException("maxPagesInMemory must be at least 1");
+    }
+    this.maxPagesInMemory = maxPagesInMemory;
+    this.index = new LongIntHashMap(expectedGroups);
+    int capacity = Math.max(16, expectedGroups);
+    this.groupPageCounts = new int[capacity];
+    this.groupOccurrences = new int[capacity];
+    this.groupLastPages = new int[capacity];
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    try {
+      pagesFile = Files.createTempFile("axe-crawl-pages", ".json");
+      groupsFile = Files.createTempFile("axe-crawl-groups", ".json");
+      occurrencesFile = Files.createTempFile("axe-crawl-occurrences", ".bin");
+      pagesOut = createGenerator(pagesFile);
+      groupsOut = createGenerator(groupsFile);
+      occurrencesOut =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(occurrencesFile)));
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to create the crawl aggregate files", e);
+    }
+  }
+
+  private JsonGenerator createGenerator(final Path file) throws IOException {
+    return mapper
+        .getFactory()
+        .createGenerator(new BufferedOutputStream(Files.newOutputStream(file)), JsonEncoding.UTF8);
+  }
+
+  /**
+   * adds the violations of a scanned page.
+   *
+   * @param results the results of the page scan
+   * @return the index of the page
+   */
+  public int addPage(final Results results) {
+    return addPage(results.getUrl(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scanned page.
+   *
+   * @param results the results of the page scan
+   * @return the index of the page
+   */
+  public int addPage(final AxeResults results) {
+    return addPage(results.getUrl(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scanned page.
+   *
+   * @param url the url of the page
+   * @param violations the violations of the page
+   * @return the index of the page
+   */
+  public synchronized int addPage(final String url, final List<Rule> violations) {
+    int page = pageCount;
+    try {
+      pagesOut.writeString(url);
+      pageCount++;
+      if (violations == null) {
+        return page;
+      }
+      for (Rule rule : violations) {
+        for (CheckedNode node : rule.getNodes()) {
+          addNode(rule.getId(), node, page);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to write the crawl aggregate", e);
+    }
+    return page;
+  }
+
+  private void addNode(final String ruleId, final CheckedNode node, final int page)
+      throws IOException {
+    long fingerprint = ViolationFingerprint.of(ruleId, node.getTarget(), node.getHtml());
+    int existing = index.putIfAbsent(fingerprint, groupCount + 1);
+    int group;
+    if (existing == 0) {
+      group = groupCount++;
+      if (group == groupPageCounts.length) {
+        int capacity = group * 2;
+        groupPageCounts = Arrays.copyOf(groupPageCounts, capacity);
+        groupOccurrences = Arrays.copyOf(groupOccurrences, capacity);
+        groupLastPages = Arrays.copyOf(groupLastPages, capacity);
+      }
+      groupLastPages[group] = -1;
+      groupsOut.writeStartObject();
+      groupsOut.writeStringField("ruleId", ruleId);
+      groupsOut.writeNumberField("fingerprint", fingerprint);
+      groupsOut.writeFieldName("node");
+      groupsOut.writeObject(node);
+      groupsOut.writeEndObject();
+    } else {
+      group = existing - 1;
+    }
+    groupOccurrences[group]++;
+    nodeCount++;
+    // pages are added in increasing order, so a page repeating a violation is the last one
+    if (groupLastPages[group] != page) {
+      groupLastPages[group] = page;
+      groupPageCounts[group]++;
+      occurrencesOut.writeInt(group);
+      occurrencesOut.writeInt(page);
+      occurrenceCount++;
+    }
+  }
+
+  /**
+   * gets the urls of the pages added so far.
+   *
+   * @return the urls, by page index
+   */
+  public synchronized List<String> getPages() {
+    List<String> pages = new ArrayList<>(pageCount);
+    try {
+      pagesOut.flush();
+      try (MappingIterator<String> urls = mapper.readValues(openParser(pagesFile), String.class)) {
+        for (int page = 0; page < pageCount; page++) {
+          pages.add(urls.next());
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read the crawl aggregate", e);
+    }
+    return Collections.unmodifiableList(pages);
+  }
+
+  /**
+   * Gets the distinct violations found so far, in the order they were first found. This reads
+   * every group back into memory; use {@link #writeTo(OutputStream)} for large crawls.
+   *
+   * @return the violation groups
+   */
+  public synchronized List<ViolationGroup> getGroups() {
+    List<ViolationGroup> groups = new ArrayList<>(groupCount);
+    try {
+      forEachGroup(
+          (record, pages, occurrences) ->
+              groups.add(
+                  new ViolationGroup(
+                      record.get("ruleId").asText(),
+                      record.get("fingerprint").asLong(),
+                      mapper.treeToValue(record.get("node"), CheckedNode.class),
+                      pages,
+                      occurrences)));
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read the crawl aggregate", e);
+    }
+    return Collections.unmodifiableList(groups);
+  }
+
+  /**
+   * gets the number of violation nodes added so far, before deduplication.
+   *
+   * @return the number of nodes
+   */
+  public synchronized long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * writes the deduplicated violations as JSON, replacing any existing file.
+   *
+   * @param path the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void writeTo(final Path path) throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      writeTo(out);
+    }
+  }
+
+  /**
+   * Streams the deduplicated violations as JSON: the page urls, then one entry per violation group
+   * with its canonical node and the indices of the pages it occurs on.
+   *
+   * @param out the stream to write to, which is left open
+   * @throws IOException if the stream cannot be written
+   */
+  public synchronized void writeTo(final OutputStream out) throws IOException {
+    pagesOut.flush();
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        MappingIterator<String> urls = mapper.readValues(openParser(pagesFile), String.class)) {
+      generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      generator.writeStartObject();
+      generator.writeNumberField("nodeCount", nodeCount);
+      generator.writeArrayFieldStart("pages");
+      for (int page = 0; page < pageCount; page++) {
+        generator.writeString(urls.next());
+      }
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart("violations");
+      forEachGroup(
+          (record, pages, occurrences) -> {
+            generator.writeStartObject();
+            generator.writeStringField("ruleId", record.get("ruleId").asText());
+            generator.writeStringField(
+                "fingerprint", Long.toHexString(record.get("fingerprint").asLong()));
+            generator.writeNumberField("pageCount", pages.length);
+            generator.writeNumberField("occurrences", occurrences);
+            generator.writeFieldName("pages");
+            generator.writeArray(pages, 0, pages.length);
+            generator.writeFieldName("node");
+            generator.writeTree(record.get("node"));
+            generator.writeEndObject();
+          });
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  /** receives a group read back from the files. */
+  private interface GroupVisitor {
+    void visit(JsonNode record, int[] pages, int occurrences) throws IOException;
+  }
+
+  /**
+   * Reads the groups back in order. The page lists are filled in batches of groups holding at most
+   * {@link #maxPagesInMemory} pages (or a single larger group), with one pass over the occurrences
+   * file per batch.
+   */
+  private void forEachGroup(final GroupVisitor visitor) throws IOException {
+    groupsOut.flush();
+    occurrencesOut.flush();
+    try (MappingIterator<JsonNode> records =
+        mapper.readValues(openParser(groupsFile), JsonNode.class)) {
+      int first = 0;
+      while (first < groupCount) {
+        int end = first;
+        long batchPages = 0;
+        do {
+          batchPages += groupPageCounts[end++];
+        } while (end < groupCount && batchPages + groupPageCounts[end] <= maxPagesInMemory);
+
+        int[][] pages = new int[end - first][];
+        int[] filled = new int[end - first];
+        for (int group = first; group < end; group++) {
+          pages[group - first] = new int[groupPageCounts[group]];
+        }
+        try (DataInputStream in =
+            new DataInputStream(new BufferedInputStream(Files.newInputStream(occurrencesFile)))) {
+          for (long i = 0; i < occurrenceCount; i++) {
+            int group = in.readInt();
+            int page = in.readInt();
+            if (group >= first && group < end) {
+              pages[group - first][filled[group - first]++] = page;
+            }
+          }
+        }
+        for (int group = first; group < end; group++) {
+          visitor.visit(records.next(), pages[group - first], groupOccurrences[group]);
+        }
+        first = end;
+      }
+    }
+  }
+
+  private JsonParser openParser(final Path file) throws IOException {
+    return mapper.getFactory().createParser(Files.newInputStream(file));
+  }
+
+  /** Deletes the temporary files. */
+  @Override
+  public synchronized void close() {
+    try {
+      try {
+        pagesOut.close();
+        groupsOut.close();
+        occurrencesOut.close();
+      } finally {
+        Files.deleteIfExists(pagesFile);
+        Files.deleteIfExists(groupsFile);
+        Files.deleteIfExists(occurrencesFile);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to delete the crawl aggregate files", e);
+    }
+  }
+}
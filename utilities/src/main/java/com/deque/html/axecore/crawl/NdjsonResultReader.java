@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.results.Results;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the results written by a {@link NdjsonResultSink}. Only the index is loaded into memory:
+ * records are streamed from the data file, filtered through the index without parsing the records
+ * left out, and looked up by url by seeking to their block. A reader can be shared between threads.
+ */
+public final class NdjsonResultReader {
+  private final ObjectMapper mapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final Path path;
+  private final boolean gzip;
+  private final List<Entry> entries = new ArrayList<>();
+
+  /** the last record of each url. */
+  private final Map<String, Entry> byUrl = new HashMap<>();
+
+  /** the index line of a record. */
+  private static final class Entry {
+    private final String url;
+    private final long offset;
+    private final int position;
+    private final Map<String, String> impactsByRule = new HashMap<>();
+
+    Entry(final String line) throws IOException {
+      String[] fields = line.split("\t", -1);
+      if (fields.length != 4) {
+        throw new IOException("Malformed result index line: " + line);
+      }
+      this.url = unescape(fields[0]);
+      this.offset = Long.parseLong(fields[1]);
+      this.position = Integer.parseInt(fields[2]);
+      if (!fields[3].isEmpty()) {
+        for (String violation : fields[3].split(",")) {
+          int separator = violation.indexOf('=');
+          impactsByRule.put(violation.substring(0, separator), violation.substring(separator + 1));
+        }
+      }
+    }
+  }
+
+  /**
+   * opens a result file and loads its index.
+   *
+   * @param path the data file written by a {@link NdjsonResultSink}
+   * @throws IOException if the files cannot be read
+   */
+  public NdjsonResultReader(final Path path) throws IOException {
+    try (BufferedReader reader =
+        Files.newBufferedReader(NdjsonResultSink.indexPath(path), StandardCharsets.UTF_8)) {
+      String format = reader.readLine();
+      if (!NdjsonResultSink.PLAIN.equals(format) && !NdjsonResultSink.GZIP.equals(format)) {
+        throw new IOException("Not a result index file.");
+      }
+      this.gzip = NdjsonResultSink.GZIP.equals(format);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Entry entry = new Entry(line);
+        entries.add(entry);
+        byUrl.put(entry.url, entry);
+      }
+    }
+    this.path = path;
+  }
+
+  /**
+   * gets the urls of the records, in the order they were written.
+   *
+   * @return the urls
+   */
+  public List<String> getUrls() {
+    List<String> urls = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      urls.add(entry.url);
+    }
+    return Collections.unmodifiableList(urls);
+  }
+
+  /**
+   * gets the number of records.
+   *
+   * @return the number of records
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * reads the results of a page, seeking to its record.
+   *
+   * @param url the url of the page
+   * @return the last results written for the url, or null if there are none
+   * @throws IOException if the record cannot be read
+   */
+  public Results read(final String url) throws IOException {
+    Entry entry = byUrl.get(url);
+    if (entry == null) {
+      return null;
+    }
+    try (BufferedReader reader = open(entry.offset)) {
+      return mapper.readValue(skipTo(reader, entry.position), Results.class);
+    }
+  }
+
+  /**
+   * streams every record, in the order they were written.
+   *
+   * @param action called with the results of each record
+   * @throws IOException if the records cannot be read
+   */
+  public void forEach(final Consumer<Results> action) throws IOException {
+    try (BufferedReader reader = open(0)) {
+      String line;
+      for (int i = 0; i < entries.size() && (line = reader.readLine()) != null; i++) {
+        action.accept(mapper.readValue(line, Results.class));
+      }
+    }
+  }
+
+  /**
+   * streams the records with a violation of a rule.
+   *
+   * @param ruleId the id of the rule
+   * @param action called with the results of each matching record
+   * @throws IOException if the records cannot be read
+   */
+  public void forEachWithViolation(final String ruleId, final Consumer<Results> action)
+      throws IOException {
+    forEachMatching(entry -> entry.impactsByRule.containsKey(ruleId), action);
+  }
+
+  /**
+   * streams the records with a violation of an impact.
+   *
+   * @param impact the impact, such as critical or serious
+   * @param action called with the results of each matching record
+   * @throws IOException if the records cannot be read
+   */
+  public void forEachWithImpact(final String impact, final Consumer<Results> action)
+      throws IOException {
+    forEachMatching(entry -> entry.impactsByRule.containsValue(impact), action);
+  }
+
+  /** reads the matching records only, reusing the open block while the records are in it. */
+  private void forEachMatching(
+      final Predicate<Entry> filter, final Consumer<Results> action) throws IOException {
+    BufferedReader reader = null;
+    long readerOffset = -1;
+    int readerPosition = 0;
+    try {
+      for (Entry entry : entries) {
+        if (!filter.test(entry)) {
+          continue;
+        }
+        if (reader == null || entry.offset != readerOffset || entry.position < readerPosition) {
+          if (reader != null) {
+            reader.close();
+          }
+          reader = open(entry.offset);
+          readerOffset = entry.offset;
+          readerPosition = 0;
+        }
+        String line = skipTo(reader, entry.position - readerPosition);
+        readerPosition = entry.position + 1;
+        action.accept(mapper.readValue(line, Results.class));
+      }
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
+  private BufferedReader open(final long offset) throws IOException {
+    FileChannel channel = FileChannel.open(path);
+    try {
+      channel.position(offset);
+      InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+      if (gzip) {
+        in = new GZIPInputStream(in);
+      }
+      return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** skips lines, returning the line after them. */
+  private static String skipTo(final BufferedReader reader, final int lines) throws IOException {
+    for (int i = 0; i < lines; i++) {
+      reader.readLine();
+    }
+    String line = reader.readLine();
+    if (line == null) {
+      throw new IOException("The result file is shorter than its index.");
+    }
+    return line;
+  }
+
+  private static String unescape(final String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+    }
+    StringBuilder text = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '\\' || i + 1 == value.length()) {
+        text.append(c);
+        continue;
+      }
+      char escaped = value.charAt(++i);
+      text.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends scan results to a newline-delimited JSON file, one record per scan, with a side index
+ * for {@link NdjsonResultReader}. Records are written as they arrive, either as plain lines or in
+ * gzip blocks of a fixed number of records; a gzip file is a sequence of gzip members, so it can
+ * still be read with standard tools.
+ *
+ * <p>The index ({@code <file>.idx}) is a tab-separated text file: a header line with the format
+ * ({@code ndjson} or {@code gzip}), then one line per record with its url, the offset of its block
+ * (or line), its position in the block, and the rule ids and impacts of its violations. Opening an
+ * existing file appends to it. Records of a gzip block that has not been written yet are lost if
+ * the process dies; {@link #flush()} writes the current block early.
+ */
+public final class NdjsonResultSink implements Closeable {
+  static final String PLAIN = "ndjson";
+  static final String GZIP = "gzip";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final OutputStream data;
+  private final Writer index;
+  private final int blockSize;
+  private long offset;
+
+  /** the records of the current gzip block, and their index lines. */
+  private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+  private final List<String> blockIndex = new ArrayList<>();
+  private boolean closed;
+
+  /**
+   * creates a sink that writes uncompressed lines, appending to the file if it exists.
+   *
+   * @param path the data file; the index is written next to it
+   * @throws IOException if the files cannot be opened, or were written in another format
+   */
+  public NdjsonResultSink(final Path path) throws IOException {
+    this(path, 0);
+  }
+
+  /**
+   * creates a sink, appending to the file if it exists.
+   *
+   * @param path the data file; the index is written next to it
+   * @param blockSize the number of records per gzip block, or 0 to write uncompressed lines
+   * @throws IOException if the files cannot be opened, or were written in another format
+   */
+  public NdjsonResultSink(final Path path, final int blockSize) throws IOException {
+    if (blockSize < 0) {
+      throw new IllegalArgumentException("blockSize must not be negative");
+    }
+    this.blockSize = blockSize;
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    Path indexPath = indexPath(path);
+    String format = blockSize > 0 ? GZIP : PLAIN;
+    boolean exists = Files.exists(indexPath) && Files.size(indexPath) > 0;
+    if (exists) {
+      try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+        if (!format.equals(reader.readLine())) {
+          throw new IOException("The existing result file is not in " + format + " format.");
+        }
+      }
+    }
+    this.offset = Files.exists(path) ? Files.size(path) : 0;
+    this.data =
+        Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    this.index =
+        Files.newBufferedWriter(
+            indexPath,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    if (!exists) {
+      index.write(format + "\n");
+    }
+  }
+
+  /**
+   * gets the index file of a data file.
+   *
+   * @param path the data file
+   * @return the index file
+   */
+  static Path indexPath(final Path path) {
+    return Paths.get(path.toString() + ".idx");
+  }
+
+  /**
+   * appends the results of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the record cannot be written
+   */
+  public void add(final Results results) throws IOException {
+    add(results.getUrl(), results.getViolations(), results);
+  }
+
+  /**
+   * appends the results of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the record cannot be written
+   */
+  public void add(final AxeResults results) throws IOException {
+    add(results.getUrl(), results.getViolations(), results);
+  }
+
+  private synchronized void add(final String url, final List<Rule> violations, final Object record)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The result sink has been closed.");
+    }
+    byte[] line = mapper.writeValueAsBytes(record);
+    if (blockSize == 0) {
+      data.write(line);
+      data.write('\n');
+      index.write(indexLine(url, offset, 0, violations));
+      offset += line.length + 1;
+      data.flush();
+      index.flush();
+      return;
+    }
+
+    block.write(line);
+    block.write('\n');
+    blockIndex.add(indexLine(url, -1, blockIndex.size(), violations));
+    if (blockIndex.size() == blockSize) {
+      flush();
+    }
+  }
+
+  private static String indexLine(
+      final String url, final long offset, final int position, final List<Rule> violations) {
+    StringBuilder line = new StringBuilder(escape(url));
+    line.append('\t').append(offset).append('\t').append(position).append('\t');
+    if (violations != null) {
+      for (int i = 0; i < violations.size(); i++) {
+        Rule rule = violations.get(i);
+        if (i > 0) {
+          line.append(',');
+        }
+        line.append(rule.getId()).append('=');
+        if (rule.getImpact() != null) {
+          line.append(rule.getImpact());
+        }
+      }
+    }
+    return line.append('\n').toString();
+  }
+
+  /**
+   * Writes the current gzip block, even if it is not full, so that its records can be read.
+   *
+   * @throws IOException if the block cannot be written
+   */
+  public synchronized void flush() throws IOException {
+    if (blockIndex.isEmpty()) {
+      data.flush();
+      return;
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      block.writeTo(gzip);
+    }
+    compressed.writeTo(data);
+    data.flush();
+    for (String line : blockIndex) {
+      // the block offset is known only now that the block is written
+      int tab = line.indexOf('\t');
+      index.write(line.substring(0, tab + 1));
+      index.write(String.valueOf(offset));
+      index.write(line.substring(line.indexOf('\t', tab + 1)));
+    }
+    index.flush();
+    offset += compressed.size();
+    block.reset();
+    blockIndex.clear();
+  }
+
+  /** escapes the characters that separate the fields and lines of the index. */
+  static String escape(final String value) {
+    if (value == null) {
+      return "";
+    }
+    return value
+        .replace("\\", "\\\\")
+        .replace("\t", "\\t")
+        .replace("\n", "\\n")
+        .replace("\r", "\\r");
+  }
+
+  /**
+   * Writes the current gzip block and closes the files.
+   *
+   * @throws IOException if the files cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      try {
+        data.close();
+      } finally {
+        index.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.RuleTiming;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sums rule timings, hottest rule first: the measures of the axe performance timer read from each
+ * frame of a scan, or the rule timings of many scans across a crawl.
+ */
+public final class RuleTimingAggregator {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Map<String, RuleTiming> timings = new HashMap<>();
+
+  /**
+   * Adds the measures read from a frame by {@code PerformanceTimerScript.FUNCTION}. A {@code
+   * rule_<id>} measure is one run of the rule; {@code rule_<id>#gather}, {@code rule_<id>#matches}
+   * and {@code runchecks_<id>} are the phases of that run.
+   *
+   * @param measuresJson the JSON array of [name, milliseconds] pairs
+   */
+  public synchronized void addMeasures(final String measuresJson) {
+    List<List<Object>> measures;
+    try {
+      measures = MAPPER.readValue(measuresJson, new TypeReference<List<List<Object>>>() {});
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Malformed performance timer measures", e);
+    }
+    for (List<Object> measure : measures) {
+      addMeasure((String) measure.get(0), ((Number) measure.get(1)).doubleValue());
+    }
+  }
+
+  private void addMeasure(final String name, final double millis) {
+    if (name.startsWith("runchecks_")) {
+      RuleTiming timing = timing(name.substring("runchecks_".length()));
+      timing.setChecksMillis(timing.getChecksMillis() + millis);
+      return;
+    }
+    int phase = name.indexOf('#');
+    RuleTiming timing =
+        timing(name.substring("rule_".length(), phase < 0 ? name.length() : phase));
+    if (phase < 0) {
+      timing.setCount(timing.getCount() + 1);
+      timing.setTotalMillis(timing.getTotalMillis() + millis);
+      timing.setMaxMillis(Math.max(timing.getMaxMillis(), millis));
+    } else if ("gather".equals(name.substring(phase + 1))) {
+      timing.setGatherMillis(timing.getGatherMillis() + millis);
+    } else if ("matches".equals(name.substring(phase + 1))) {
+      timing.setMatchesMillis(timing.getMatchesMillis() + millis);
+    }
+  }
+
+  /**
+   * adds the rule timings of a scan.
+   *
+   * @param results the results of the scan
+   */
+  public void addPage(final Results results) {
+    addTimings(results.getRuleTimings());
+  }
+
+  /**
+   * adds the rule timings of a scan.
+   *
+   * @param results the results of the scan
+   */
+  public void addPage(final AxeResults results) {
+    addTimings(results.getRuleTimings());
+  }
+
+  /**
+   * adds rule timings, summing the times and counts of each rule.
+   *
+   * @param ruleTimings the rule timings, or null when the scan was not timed
+   */
+  public synchronized void addTimings(final List<RuleTiming> ruleTimings) {
+    if (ruleTimings == null) {
+      return;
+    }
+    for (RuleTiming added : ruleTimings) {
+      RuleTiming timing = timing(added.getRuleId());
+      timing.setCount(timing.getCount() + added.getCount());
+      timing.setTotalMillis(timing.getTotalMillis() + added.getTotalMillis());
+      timing.setMaxMillis(Math.max(timing.getMaxMillis(), added.getMaxMillis()));
+      timing.setGatherMillis(timing.getGatherMillis() + added.getGatherMillis());
+      timing.setMatchesMillis(timing.getMatchesMillis() + added.getMatchesMillis());
+      timing.setChecksMillis(timing.getChecksMillis() + added.getChecksMillis());
+    }
+  }
+
+  /**
+   * gets the rule timings added so far, hottest rule first.
+   *
+   * @return copies of the rule timings, by total time, longest first
+   */
+  public synchronized List<RuleTiming> getTimings() {
+    List<RuleTiming> sorted = new ArrayList<>();
+    for (RuleTiming timing : timings.values()) {
+      RuleTiming copy = new RuleTiming(timing.getRuleId());
+      copy.setCount(timing.getCount());
+      copy.setTotalMillis(timing.getTotalMillis());
+      copy.setMaxMillis(timing.getMaxMillis());
+      copy.setGatherMillis(timing.getGatherMillis());
+      copy.setMatchesMillis(timing.getMatchesMillis());
+      copy.setChecksMillis(timing.getChecksMillis());
+      sorted.add(copy);
+    }
+    sorted.sort(
+        Comparator.comparingDouble(RuleTiming::getTotalMillis)
+            .reversed()
+            .thenComparing(RuleTiming::getRuleId));
+    return sorted;
+  }
+
+  /**
+   * gets the rules that took the longest.
+   *
+   * @param limit the most rules to return
+   * @return the rule timings, longest first
+   */
+  public List<RuleTiming> getHottest(final int limit) {
+    List<RuleTiming> sorted = getTimings();
+    return sorted.subList(0, Math.min(limit, sorted.size()));
+  }
+
+  /**
+   * gets whether no timing was added.
+   *
+   * @return true if there are no timings
+   */
+  public synchronized boolean isEmpty() {
+    return timings.isEmpty();
+  }
+
+  private RuleTiming timing(final String ruleId) {
+    return timings.computeIfAbsent(ruleId, RuleTiming::new);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import com.deque.html.axecore.results.CheckedNode;
+import java.util.Arrays;
+
+/**
+ * The occurrences of one violation across a crawl: every node with the same rule id, normalized
+ * target and html, represented by the first node found.
+ */
+public final class ViolationGroup {
+  private final String ruleId;
+  private final long fingerprint;
+  private final CheckedNode node;
+  private final int[] pages;
+  private final int occurrences;
+
+  ViolationGroup(
+      final String ruleId,
+      final long fingerprint,
+      final CheckedNode node,
+      final int[] pages,
+      final int occurrences) {
+    this.ruleId = ruleId;
+    this.fingerprint = fingerprint;
+    this.node = node;
+    this.pages = pages;
+    this.occurrences = occurrences;
+  }
+
+  /**
+   * gets the id of the rule the violation was reported for.
+   *
+   * @return the rule id
+   */
+  public String getRuleId() {
+    return ruleId;
+  }
+
+  /**
+   * gets the fingerprint shared by every occurrence.
+   *
+   * @return the fingerprint
+   */
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * gets the canonical node, the first occurrence found in the crawl.
+   *
+   * @return the node
+   */
+  public CheckedNode getNode() {
+    return node;
+  }
+
+  /**
+   * gets the number of pages the violation occurs on.
+   *
+   * @return the page count
+   */
+  public int getPageCount() {
+    return pages.length;
+  }
+
+  /**
+   * gets the indices of the pages the violation occurs on, as returned by {@link
+   * CrawlAggregator#addPage(String, java.util.List)}.
+   *
+   * @return the page indices, in increasing order
+   */
+  public int[] getPages() {
+    return Arrays.copyOf(pages, pages.length);
+  }
+
+  /**
+   * gets the number of nodes in the group, which exceeds the page count when a page reports the
+   * same violation more than once.
+   *
+   * @return the number of occurrences
+   */
+  public int getOccurrences() {
+    return occurrences;
+  }
+
+  @Override
+  public String toString() {
+    return "ViolationGroup{"
+        + "ruleId='"
+        + ruleId
+        + '\''
+        + ", target="
+        + node.getTarget()
+        + ", pageCount="
+        + pages.length
+        + ", occurrences="
+        + occurrences
+        + '}';
+  }
+}
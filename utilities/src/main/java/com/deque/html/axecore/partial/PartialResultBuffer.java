@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.partial;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds the axe.runPartial results of the frames of a scan, in frame order, until they are sent to
+ * axe.finishRun. Results are kept on the heap until they add up to a threshold; past it, they are
+ * written to a temporary file, and all later results go straight to the file. The results are
+ * read back as one JSON array in chunks of bounded size, so the whole array is never held in
+ * memory. Closing the buffer deletes the file.
+ */
+public final class PartialResultBuffer implements Closeable {
+  private static final byte[] SEPARATOR = {','};
+  private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+  private final long memoryThreshold;
+  private final List<String> memory = new ArrayList<>();
+  private long memoryChars;
+
+  /** the spill file, null while the results are on the heap. */
+  private Path file;
+
+  private OutputStream out;
+
+  /** the offset in the spill file of each result, with its leading separator. */
+  private final List<Long> offsets = new ArrayList<>();
+
+  private long length;
+
+  /** creates a buffer that never spills to disk. */
+  public PartialResultBuffer() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * creates a buffer.
+   *
+   * @param memoryThreshold the number of characters to hold on the heap before writing the results
+   *     to a temporary file
+   */
+  public PartialResultBuffer(final long memoryThreshold) {
+    if (memoryThreshold < 0) {
+      throw new IllegalArgumentException("memoryThreshold must not be negative");
+    }
+    this.memoryThreshold = memoryThreshold;
+  }
+
+  /**
+   * adds the result of a frame.
+   *
+   * @param partialResult the JSON result of axe.runPartial, or null for a frame left out
+   */
+  public void add(final String partialResult) {
+    try {
+      if (file == null) {
+        memory.add(partialResult);
+        memoryChars += partialResult == null ? 0 : partialResult.length();
+        if (memoryChars > memoryThreshold) {
+          spill();
+        }
+      } else {
+        write(partialResult);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to write partial results to disk", e);
+    }
+  }
+
+  /**
+   * adds the results of frames.
+   *
+   * @param partialResults the JSON results of axe.runPartial, null for the frames left out
+   */
+  public void addAll(final Collection<String> partialResults) {
+    for (String partialResult : partialResults) {
+      add(partialResult);
+    }
+  }
+
+  /**
+   * gets the number of results.
+   *
+   * @return the number of results
+   */
+  public int size() {
+    return file == null ? memory.size() : offsets.size();
+  }
+
+  /**
+   * gets whether the results were written to disk.
+   *
+   * @return true if the results are in a temporary file
+   */
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  /**
+   * Removes the results added after the first ones, such as the results of the frames inside a
+   * frame that failed.
+   *
+   * @param size the number of results to keep
+   */
+  public void truncate(final int size) {
+    if (size < 0 || size > size()) {
+      throw new IllegalArgumentException("size must be between 0 and " + size());
+    }
+    if (file == null) {
+      while (memory.size() > size) {
+        String removed = memory.remove(memory.size() - 1);
+        memoryChars -= removed == null ? 0 : removed.length();
+      }
+      return;
+    }
+    if (size == offsets.size()) {
+      return;
+    }
+    try {
+      out.flush();
+      length = offsets.get(size);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(length);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to write partial results to disk", e);
+    }
+    offsets.subList(size, offsets.size()).clear();
+  }
+
+  /**
+   * Reads the results back as a JSON array, in chunks of at most the given length. A chunk does
+   * not end in the middle of a surrogate pair.
+   *
+   * @param maxChunkLength the most characters in a chunk
+   * @param action called with each chunk, in order
+   */
+  public void forEachChunk(final int maxChunkLength, final Consumer<String> action) {
+    if (maxChunkLength < 2) {
+      throw new IllegalArgumentException("maxChunkLength must be at least 2");
+    }
+    StringBuilder chunk = new StringBuilder();
+    chunk.append('[');
+    if (file == null) {
+      for (int i = 0; i < memory.size(); i++) {
+        if (i > 0) {
+          append(chunk, ",", maxChunkLength, action);
+        }
+        String partialResult = memory.get(i);
+        append(chunk, partialResult == null ? "null" : partialResult, maxChunkLength, action);
+      }
+    } else {
+      char[] buffer = new char[8192];
+      try {
+        out.flush();
+        try (Reader reader =
+            new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+          int read;
+          while ((read = reader.read(buffer)) != -1) {
+            append(chunk, new String(buffer, 0, read), maxChunkLength, action);
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to read partial results from disk", e);
+      }
+    }
+    append(chunk, "]", maxChunkLength, action);
+    action.accept(chunk.toString());
+  }
+
+  /** appends text to the chunk, handing the chunk over each time it is full. */
+  private static void append(
+      final StringBuilder chunk,
+      final String text,
+      final int maxChunkLength,
+      final Consumer<String> action) {
+    int start = 0;
+    while (chunk.length() + text.length() - start > maxChunkLength) {
+      int end = start + maxChunkLength - chunk.length();
+      chunk.append(text, start, end);
+      int carry = Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)) ? 1 : 0;
+      action.accept(chunk.substring(0, chunk.length() - carry));
+      String rest = chunk.substring(chunk.length() - carry);
+      chunk.setLength(0);
+      chunk.append(rest);
+      start = end;
+    }
+    chunk.append(text, start, text.length());
+  }
+
+  private void spill() throws IOException {
+    file = Files.createTempFile("axe-partial-results", ".json");
+    out =
+        new BufferedOutputStream(
+            Files.newOutputStream(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    for (String partialResult : memory) {
+      write(partialResult);
+    }
+    memory.clear();
+    memoryChars = 0;
+  }
+
+  private void write(final String partialResult) throws IOException {
+    boolean first = offsets.isEmpty();
+    offsets.add(length);
+    if (!first) {
+      out.write(SEPARATOR);
+      length += SEPARATOR.length;
+    }
+    byte[] bytes =
+        partialResult == null ? NULL : partialResult.getBytes(StandardCharsets.UTF_8);
+    out.write(bytes);
+    length += bytes.length;
+  }
+
+  /** Drops the results and deletes the spill file. */
+  @Override
+  public void close() {
+    memory.clear();
+    memoryChars = 0;
+    if (file == null) {
+      return;
+    }
+    try {
+      try {
+        out.close();
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to delete the partial results file", e);
+    } finally {
+      file = null;
+      offsets.clear();
+      length = 0;
+    }
+  }
+}
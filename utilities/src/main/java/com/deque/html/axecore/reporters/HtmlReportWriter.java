@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams axe violations into a single self-contained HTML report. The violation nodes of each scan
+ * are embedded as compact JSON chunks of at most {@value #CHUNK_SIZE} nodes, written as soon as the
+ * scan is added, and the page renders one page of nodes at a time, parsing only the chunks it
+ * shows. The per-rule summary is written when the writer is closed; it holds one entry per
+ * distinct rule id, so memory does not grow with the number of scans.
+ */
+public final class HtmlReportWriter implements Closeable {
+  /** the most nodes embedded in one JSON chunk. */
+  static final int CHUNK_SIZE = 1000;
+
+  private static final String STYLE =
+      "body{font-family:Arial,sans-serif;margin:20px}"
+          + "table{width:100%;border-collapse:collapse;margin-top:12px}"
+          + "th,td{border:1px solid #ddd;padding:6px;text-align:left;vertical-align:top}"
+          + "th{background:#f2f2f2}"
+          + "td code{white-space:pre-wrap;word-break:break-all}"
+          + ".critical{background:#ffe0e0}.serious{background:#fffacd}"
+          + ".moderate{background:#e0f2f7}.minor{background:#e6ffe6}"
+          + "nav{margin-top:12px}nav button{margin-right:8px}";
+
+  // renders the summary, then the nodes one page at a time; chunks are parsed on first use
+  private static final String RENDER_SCRIPT =
+      "(function(){"
+          + "var PAGE_SIZE=100;"
+          + "var summary=JSON.parse(document.getElementById('axe-summary').textContent);"
+          + "var chunks=document.querySelectorAll('script.axe-chunk');"
+          + "var parsed=[];var counts=[];var total=0;var filter=null;var matches=null;var page=0;"
+          + "for(var i=0;i<chunks.length;i++){counts.push(+chunks[i].getAttribute('data-count'));"
+          + "total+=counts[i];}"
+          + "function chunk(i){if(!parsed[i]){parsed[i]=JSON.parse(chunks[i].textContent);}"
+          + "return parsed[i];}"
+          + "function cell(row,text,code){var td=row.insertCell();"
+          + "if(code){var c=document.createElement('code');c.textContent=text||'';"
+          + "td.appendChild(c);}"
+          + "else{td.textContent=text==null?'':text;}return td;}"
+          + "function at(n){for(var i=0;i<counts.length;i++){if(n<counts[i]){return [i,n];}"
+          + "n-=counts[i];}}"
+          + "function matching(){if(!matches){matches=[];for(var i=0;i<chunks.length;i++){"
+          + "var nodes=chunk(i).nodes;for(var j=0;j<nodes.length;j++){"
+          + "if(nodes[j][0]===filter){matches.push([i,j]);}}}}return matches;}"
+          + "function render(){var size=filter?matching().length:total;"
+          + "var pages=Math.max(1,Math.ceil(size/PAGE_SIZE));page=Math.min(page,pages-1);"
+          + "var body=document.getElementById('axe-nodes');body.textContent='';"
+          + "for(var n=page*PAGE_SIZE;n<Math.min(size,(page+1)*PAGE_SIZE);n++){"
+          + "var pos=filter?matches[n]:at(n);var c=chunk(pos[0]);var node=c.nodes[pos[1]];"
+          + "var row=body.insertRow();row.className=node[1]||'';cell(row,c.url);cell(row,node[0]);"
+          + "cell(row,node[1]);cell(row,node[2],true);cell(row,node[3],true);cell(row,node[4]);}"
+          + "document.getElementById('axe-page').textContent='Page '+(page+1)+' of '+pages"
+          + "+' ('+size+' nodes'+(filter?' for '+filter:'')+')';}"
+          + "var rules=document.getElementById('axe-rules');"
+          + "Object.keys(summary.rules).forEach(function(id){var rule=summary.rules[id];"
+          + "var row=rules.insertRow();row.className=rule.impact||'';"
+          + "var button=document.createElement('button');button.textContent=id;"
+          + "button.onclick=function(){filter=filter===id?null:id;matches=null;page=0;render();};"
+          + "row.insertCell().appendChild(button);cell(row,rule.impact);"
+          + "var help=row.insertCell();var link=document.createElement('a');link.href=rule.helpUrl;"
+          + "link.textContent=rule.help;help.appendChild(link);"
+          + "cell(row,rule.nodes);cell(row,rule.pages);});"
+          + "document.getElementById('axe-totals').textContent=summary.pages+' pages, '"
+          + "+summary.nodes+' violation nodes, '+Object.keys(summary.rules).length+' rules';"
+          + "document.getElementById('axe-prev').onclick=function(){if(page>0){page--;render();}};"
+          + "document.getElementById('axe-next').onclick=function(){page++;render();};"
+          + "render();"
+          + "})();";
+
+  private final Writer out;
+  private final boolean closeTarget;
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  /**
+   * the chunk being written; chunks are buffered because their node count goes in the opening tag,
+   * so that the page can find a node without parsing the chunks before it.
+   */
+  private StringWriter chunkBuffer;
+
+  private final Map<String, RuleSummary> rules = new LinkedHashMap<>();
+  private long pageCount;
+  private long nodeCount;
+  private boolean closed;
+
+  /** the description and counts of a rule across the scans. */
+  private static final class RuleSummary {
+    private final String impact;
+    private final String help;
+    private final String helpUrl;
+    private long nodes;
+    private long pages;
+
+    RuleSummary(final Rule rule) {
+      this.impact = rule.getImpact();
+      this.help = rule.getHelp();
+      this.helpUrl = rule.getHelpUrl();
+    }
+  }
+
+  /** escapes the characters that could end a script element or open a comment inside one. */
+  private static final class ScriptSafeEscapes extends CharacterEscapes {
+    private final int[] escapes;
+
+    ScriptSafeEscapes() {
+      escapes = CharacterEscapes.standardAsciiEscapesForJSON();
+      escapes['<'] = CharacterEscapes.ESCAPE_STANDARD;
+      escapes['>'] = CharacterEscapes.ESCAPE_STANDARD;
+      escapes['&'] = CharacterEscapes.ESCAPE_STANDARD;
+    }
+
+    @Override
+    public int[] getEscapeCodesForAscii() {
+      return escapes;
+    }
+
+    @Override
+    public SerializableString getEscapeSequence(final int ch) {
+      return null;
+    }
+  }
+
+  /**
+   * creates a writer to a file, replacing any existing file.
+   *
+   * @param path the file to write
+   * @param title the title of the report
+   * @throws IOException if the file cannot be written
+   */
+  public HtmlReportWriter(final Path path, final String title) throws IOException {
+    this(
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8)),
+        true,
+        title);
+  }
+
+  /**
+   * creates a writer to a stream, which is left open when the writer is closed.
+   *
+   * @param out the stream to write to
+   * @param title the title of the report
+   * @throws IOException if the stream cannot be written
+   */
+  public HtmlReportWriter(final OutputStream out, final String title) throws IOException {
+    this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, title);
+  }
+
+  private HtmlReportWriter(final Writer out, final boolean closeTarget, final String title)
+      throws IOException {
+    this.out = out;
+    this.closeTarget = closeTarget;
+    jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    jsonFactory.setCharacterEscapes(new ScriptSafeEscapes());
+
+    String escapedTitle = escapeHtml(title);
+    out.write("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n");
+    out.write("<title>" + escapedTitle + "</title>\n<style>" + STYLE + "</style>\n</head>\n");
+    out.write("<body>\n<h1>" + escapedTitle + "</h1>\n<p id=\"axe-totals\"></p>\n");
+    out.write("<table><thead><tr><th>Rule</th><th>Impact</th><th>Help</th><th>Nodes</th>");
+    out.write("<th>Pages</th></tr></thead><tbody id=\"axe-rules\"></tbody></table>\n");
+    out.write("<nav><button id=\"axe-prev\">Previous</button><button id=\"axe-next\">Next");
+    out.write("</button><span id=\"axe-page\"></span></nav>\n");
+    out.write("<table><thead><tr><th>Page</th><th>Rule</th><th>Impact</th><th>Target</th>");
+    out.write("<th>HTML</th><th>Failure summary</th></tr></thead>");
+    out.write("<tbody id=\"axe-nodes\"></tbody></table>\n");
+  }
+
+  /**
+   * adds the violations of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the report cannot be written
+   */
+  public void addScan(final Results results) throws IOException {
+    addScan(results.getUrl(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the report cannot be written
+   */
+  public void addScan(final AxeResults results) throws IOException {
+    addScan(results.getUrl(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scan, embedding its nodes in chunks of at most {@value #CHUNK_SIZE}.
+   *
+   * @param url the url of the scanned page
+   * @param violations the violations of the scan
+   * @throws IOException if the report cannot be written
+   */
+  public synchronized void addScan(final String url, final List<Rule> violations)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The HTML report has been closed.");
+    }
+    pageCount++;
+    if (violations == null) {
+      return;
+    }
+
+    JsonGenerator generator = null;
+    int inChunk = 0;
+    for (Rule rule : violations) {
+      if (rule.getNodes() == null || rule.getNodes().isEmpty()) {
+        continue;
+      }
+      RuleSummary summary = rules.get(rule.getId());
+      if (summary == null) {
+        summary = new RuleSummary(rule);
+        rules.put(rule.getId(), summary);
+      }
+      summary.pages++;
+
+      for (CheckedNode node : rule.getNodes()) {
+        if (inChunk == CHUNK_SIZE) {
+          endChunk(generator, inChunk);
+          generator = null;
+          inChunk = 0;
+        }
+        if (generator == null) {
+          generator = startChunk(url);
+        }
+        generator.writeStartArray();
+        generator.writeString(rule.getId());
+        generator.writeString(node.getImpact() != null ? node.getImpact() : rule.getImpact());
+        generator.writeString(ReportTargets.toText(node.getTarget()));
+        generator.writeString(node.getHtml());
+        generator.writeString(node.getFailureSummary());
+        generator.writeEndArray();
+        inChunk++;
+        summary.nodes++;
+        nodeCount++;
+      }
+    }
+    if (generator != null) {
+      endChunk(generator, inChunk);
+    }
+    out.flush();
+  }
+
+  private JsonGenerator startChunk(final String url) throws IOException {
+    chunkBuffer = new StringWriter();
+    JsonGenerator generator = jsonFactory.createGenerator(chunkBuffer);
+    generator.writeStartObject();
+    generator.writeStringField("url", url);
+    generator.writeArrayFieldStart("nodes");
+    return generator;
+  }
+
+  private void endChunk(final JsonGenerator generator, final int count) throws IOException {
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.close();
+    out.write("<script type=\"application/json\" class=\"axe-chunk\" data-count=\"");
+    out.write(String.valueOf(count));
+    out.write("\">");
+    out.write(chunkBuffer.toString());
+    out.write("</script>\n");
+    chunkBuffer = null;
+  }
+
+  /**
+   * Writes the rule summary and the script that renders the report, ending the report.
+   *
+   * @throws IOException if the report cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      out.write("<script type=\"application/json\" id=\"axe-summary\">");
+      JsonGenerator generator = jsonFactory.createGenerator(out);
+      generator.writeStartObject();
+      generator.writeNumberField("pages", pageCount);
+      generator.writeNumberField("nodes", nodeCount);
+      generator.writeObjectFieldStart("rules");
+      for (Map.Entry<String, RuleSummary> entry : rules.entrySet()) {
+        RuleSummary rule = entry.getValue();
+        generator.writeObjectFieldStart(entry.getKey());
+        generator.writeStringField("impact", rule.impact);
+        generator.writeStringField("help", rule.help);
+        generator.writeStringField("helpUrl", rule.helpUrl);
+        generator.writeNumberField("nodes", rule.nodes);
+        generator.writeNumberField("pages", rule.pages);
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+      generator.writeEndObject();
+      generator.close();
+      out.write("</script>\n<script>" + RENDER_SCRIPT + "</script>\n</body>\n</html>\n");
+    } finally {
+      if (closeTarget) {
+        out.close();
+      } else {
+        out.flush();
+      }
+    }
+  }
+
+  private static String escapeHtml(final String text) {
+    if (text == null) {
+      return "";
+    }
+    return text.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streams axe results as a JUnit XML report. Each scan added is written as one test suite named
+ * after the scanned url, with a failing test case per violation node and a passing test case per
+ * passed rule, so memory does not grow with the number of scans; any number of scans can be added
+ * to merge them into one report.
+ */
+public final class JUnitReportWriter implements Closeable {
+  private final OutputStream out;
+  private final boolean closeTarget;
+  private final XMLStreamWriter writer;
+  private boolean closed;
+
+  /**
+   * creates a writer to a file, replacing any existing file.
+   *
+   * @param path the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public JUnitReportWriter(final Path path) throws IOException {
+    this(Files.newOutputStream(path), true);
+  }
+
+  /**
+   * creates a writer to a stream, which is left open when the writer is closed.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public JUnitReportWriter(final OutputStream out) throws IOException {
+    this(out, false);
+  }
+
+  private JUnitReportWriter(final OutputStream out, final boolean closeTarget)
+      throws IOException {
+    this.out = out;
+    this.closeTarget = closeTarget;
+    try {
+      this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeStartElement("testsuites");
+      writer.writeAttribute("name", "axe-core");
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to write the JUnit report.", e);
+    }
+  }
+
+  /**
+   * adds the violations and passes of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the report cannot be written
+   */
+  public void addScan(final Results results) throws IOException {
+    addScan(results.getUrl(), results.getViolations(), results.getPasses());
+  }
+
+  /**
+   * adds the violations and passes of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the report cannot be written
+   */
+  public void addScan(final AxeResults results) throws IOException {
+    addScan(results.getUrl(), results.getViolations(), results.getPasses());
+  }
+
+  /**
+   * adds a scan as a test suite, writing one test case per violation node and per passed rule.
+   *
+   * @param url the url of the scanned page
+   * @param violations the violations of the scan
+   * @param passes the passed rules of the scan, or null to leave them out
+   * @throws IOException if the report cannot be written
+   */
+  public synchronized void addScan(
+      final String url, final List<Rule> violations, final List<Rule> passes)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The JUnit report has been closed.");
+    }
+    int failures = 0;
+    if (violations != null) {
+      for (Rule rule : violations) {
+        failures += rule.getNodes() == null ? 0 : rule.getNodes().size();
+      }
+    }
+    int tests = failures + (passes == null ? 0 : passes.size());
+
+    try {
+      writer.writeStartElement("testsuite");
+      writer.writeAttribute("name", String.valueOf(url));
+      writer.writeAttribute("tests", String.valueOf(tests));
+      writer.writeAttribute("failures", String.valueOf(failures));
+      writer.writeAttribute("errors", "0");
+      writer.writeAttribute("skipped", "0");
+      if (violations != null) {
+        for (Rule rule : violations) {
+          if (rule.getNodes() == null) {
+            continue;
+          }
+          for (CheckedNode node : rule.getNodes()) {
+            writeFailure(rule, node);
+          }
+        }
+      }
+      if (passes != null) {
+        for (Rule rule : passes) {
+          writer.writeEmptyElement("testcase");
+          writer.writeAttribute("classname", rule.getId());
+          writer.writeAttribute("name", String.valueOf(rule.getHelp()));
+        }
+      }
+      writer.writeEndElement();
+      writer.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to write the JUnit report.", e);
+    }
+  }
+
+  private void writeFailure(final Rule rule, final CheckedNode node) throws XMLStreamException {
+    writer.writeStartElement("testcase");
+    writer.writeAttribute("classname", rule.getId());
+    writer.writeAttribute("name", ReportTargets.toText(node.getTarget()));
+    writer.writeStartElement("failure");
+    writer.writeAttribute("message", String.valueOf(rule.getHelp()));
+    writer.writeAttribute(
+        "type", String.valueOf(node.getImpact() != null ? node.getImpact() : rule.getImpact()));
+    if (node.getFailureSummary() != null) {
+      writer.writeCharacters(node.getFailureSummary());
+      writer.writeCharacters(System.lineSeparator());
+    }
+    writer.writeCharacters(String.valueOf(node.getHtml()));
+    writer.writeCharacters(System.lineSeparator());
+    writer.writeCharacters(String.valueOf(rule.getHelpUrl()));
+    writer.writeEndElement();
+    writer.writeEndElement();
+  }
+
+  /**
+   * Ends the report.
+   *
+   * @throws IOException if the report cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to write the JUnit report.", e);
+    } finally {
+      if (closeTarget) {
+        out.close();
+      } else {
+        out.flush();
+      }
+    }
+  }
+}
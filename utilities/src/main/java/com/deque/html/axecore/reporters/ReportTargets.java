@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import java.util.List;
+
+/** Formats axe node targets for reports. */
+final class ReportTargets {
+  private ReportTargets() {}
+
+  /**
+   * Formats a target as one line: the selectors of the frames and shadow roots leading to the node
+   * are joined with {@code " >>> "}.
+   *
+   * @param target the target of a node, a selector or a list of selectors
+   * @return the target as text
+   */
+  static String toText(final Object target) {
+    if (!(target instanceof List)) {
+      return String.valueOf(target);
+    }
+    StringBuilder text = new StringBuilder();
+    for (Object selector : (List<?>) target) {
+      if (text.length() > 0) {
+        text.append(" >>> ");
+      }
+      text.append(toText(selector));
+    }
+    return text.toString();
+  }
+}
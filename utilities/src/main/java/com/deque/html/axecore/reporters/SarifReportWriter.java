@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.deque.html.axecore.results.TestEngine;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streams axe violations as a SARIF 2.1.0 log with a single run. Each violation node is written as
+ * one result as soon as its scan is added, so memory does not grow with the number of scans; any
+ * number of scans can be added to merge them into one log. The rules of the run are written when
+ * the writer is closed, after the results, and hold one entry per distinct rule id.
+ */
+public final class SarifReportWriter implements Closeable {
+  private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+  private static final String INFORMATION_URI = "https://github.com/dequelabs/axe-core";
+
+  private final JsonGenerator generator;
+  private final Map<String, Rule> rules = new LinkedHashMap<>();
+  private String engineVersion;
+  private boolean closed;
+
+  /**
+   * creates a writer to a file, replacing any existing file.
+   *
+   * @param path the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public SarifReportWriter(final Path path) throws IOException {
+    this(Files.newOutputStream(path), true);
+  }
+
+  /**
+   * creates a writer to a stream, which is left open when the writer is closed.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public SarifReportWriter(final OutputStream out) throws IOException {
+    this(out, false);
+  }
+
+  private SarifReportWriter(final OutputStream out, final boolean closeTarget)
+      throws IOException {
+    JsonFactory factory = new JsonFactory();
+    factory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, closeTarget);
+    this.generator = factory.createGenerator(out, JsonEncoding.UTF8);
+    generator.writeStartObject();
+    generator.writeStringField("version", "2.1.0");
+    generator.writeStringField("$schema", SCHEMA);
+    generator.writeArrayFieldStart("runs");
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("results");
+  }
+
+  /**
+   * adds the violations of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the log cannot be written
+   */
+  public void addScan(final Results results) throws IOException {
+    addScan(results.getUrl(), results.getTestEngine(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scan.
+   *
+   * @param results the results of the scan
+   * @throws IOException if the log cannot be written
+   */
+  public void addScan(final AxeResults results) throws IOException {
+    addScan(results.getUrl(), results.getTestEngine(), results.getViolations());
+  }
+
+  /**
+   * adds the violations of a scan, writing one result per violation node.
+   *
+   * @param url the url of the scanned page
+   * @param testEngine the axe version that ran the scan, or null
+   * @param violations the violations of the scan
+   * @throws IOException if the log cannot be written
+   */
+  public synchronized void addScan(
+      final String url, final TestEngine testEngine, final Iterable<Rule> violations)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The SARIF log has been closed.");
+    }
+    if (engineVersion == null && testEngine != null) {
+      engineVersion = testEngine.getVersion();
+    }
+    if (violations == null) {
+      return;
+    }
+    for (Rule rule : violations) {
+      if (!rules.containsKey(rule.getId())) {
+        rules.put(rule.getId(), describe(rule));
+      }
+      if (rule.getNodes() == null) {
+        continue;
+      }
+      for (CheckedNode node : rule.getNodes()) {
+        writeResult(url, rule, node);
+      }
+    }
+    generator.flush();
+  }
+
+  private void writeResult(final String url, final Rule rule, final CheckedNode node)
+      throws IOException {
+    String impact = node.getImpact() != null ? node.getImpact() : rule.getImpact();
+    generator.writeStartObject();
+    generator.writeStringField("ruleId", rule.getId());
+    generator.writeStringField("level", level(impact));
+    generator.writeObjectFieldStart("message");
+    generator.writeStringField(
+        "text", node.getFailureSummary() != null ? node.getFailureSummary() : rule.getHelp());
+    generator.writeEndObject();
+
+    generator.writeArrayFieldStart("locations");
+    generator.writeStartObject();
+    generator.writeObjectFieldStart("physicalLocation");
+    generator.writeObjectFieldStart("artifactLocation");
+    generator.writeStringField("uri", url);
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeArrayFieldStart("logicalLocations");
+    generator.writeStartObject();
+    generator.writeStringField("fullyQualifiedName", ReportTargets.toText(node.getTarget()));
+    generator.writeStringField("kind", "element");
+    generator.writeEndObject();
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeEndArray();
+
+    generator.writeObjectFieldStart("properties");
+    generator.writeStringField("impact", impact);
+    generator.writeStringField("html", node.getHtml());
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  /** copies what the rules of the log need, leaving out the nodes of the scan. */
+  private static Rule describe(final Rule rule) {
+    Rule description = new Rule();
+    description.setId(rule.getId());
+    description.setHelp(rule.getHelp());
+    description.setDescription(rule.getDescription());
+    description.setHelpUrl(rule.getHelpUrl());
+    description.setTags(rule.getTags());
+    return description;
+  }
+
+  /** maps an axe impact onto a SARIF level. */
+  private static String level(final String impact) {
+    if ("critical".equals(impact) || "serious".equals(impact)) {
+      return "error";
+    }
+    if ("moderate".equals(impact)) {
+      return "warning";
+    }
+    return "note";
+  }
+
+  /**
+   * Writes the tool and its rules, ending the log.
+   *
+   * @throws IOException if the log cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    generator.writeEndArray();
+
+    generator.writeObjectFieldStart("tool");
+    generator.writeObjectFieldStart("driver");
+    generator.writeStringField("name", "axe-core");
+    if (engineVersion != null) {
+      generator.writeStringField("version", engineVersion);
+    }
+    generator.writeStringField("informationUri", INFORMATION_URI);
+    generator.writeArrayFieldStart("rules");
+    for (Rule rule : rules.values()) {
+      generator.writeStartObject();
+      generator.writeStringField("id", rule.getId());
+      generator.writeObjectFieldStart("shortDescription");
+      generator.writeStringField("text", rule.getHelp());
+      generator.writeEndObject();
+      generator.writeObjectFieldStart("fullDescription");
+      generator.writeStringField("text", rule.getDescription());
+      generator.writeEndObject();
+      generator.writeStringField("helpUri", rule.getHelpUrl());
+      if (rule.getTags() != null) {
+        generator.writeObjectFieldStart("properties");
+        generator.writeArrayFieldStart("tags");
+        for (String tag : rule.getTags()) {
+          generator.writeString(tag);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeEndObject();
+
+    generator.writeEndObject();
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.close();
+  }
+}
@@ -17,6 +17,10 @@ public class AxeResults {
   private List<Rule> incomplete;
   private List<Rule> inapplicable;
   private AxeRuntimeException errorObject;
+  // Frames left out because they ran out of time, null when every frame was scanned
+  private List<SkippedFrame> skippedFrames;
+  // The time each rule took, null unless the performance timer was on
+  private List<RuleTiming> ruleTimings;
 
   public AxeResults() {}
 
@@ -105,6 +109,22 @@ public class AxeResults {
     this.incomplete = incomplete;
   }
 
+  public List<SkippedFrame> getSkippedFrames() {
+    return skippedFrames;
+  }
+
+  public void setSkippedFrames(final List<SkippedFrame> skippedFrames) {
+    this.skippedFrames = skippedFrames;
+  }
+
+  public List<RuleTiming> getRuleTimings() {
+    return ruleTimings;
+  }
+
+  public void setRuleTimings(final List<RuleTiming> ruleTimings) {
+    this.ruleTimings = ruleTimings;
+  }
+
   public boolean violationFree() {
     // If the violations list has not been initialized, there
     // are no violations. This prevents a `NullPointerException` when
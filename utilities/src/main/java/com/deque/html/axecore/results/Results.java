@@ -18,6 +18,10 @@ public class Results {
   private List<Rule> inapplicable;
   // The error message from `axe.run()`
   private AxeRuntimeException errorObject;
+  // Frames left out because they ran out of time, null when every frame was scanned
+  private List<SkippedFrame> skippedFrames;
+  // The time each rule took, null unless the performance timer was on
+  private List<RuleTiming> ruleTimings;
 
   public boolean isErrored() {
     return errorObject != null;
@@ -111,6 +115,22 @@ public class Results {
     this.incomplete = incomplete;
   }
 
+  public List<SkippedFrame> getSkippedFrames() {
+    return skippedFrames;
+  }
+
+  public void setSkippedFrames(final List<SkippedFrame> skippedFrames) {
+    this.skippedFrames = skippedFrames;
+  }
+
+  public List<RuleTiming> getRuleTimings() {
+    return ruleTimings;
+  }
+
+  public void setRuleTimings(final List<RuleTiming> ruleTimings) {
+    this.ruleTimings = ruleTimings;
+  }
+
   public boolean violationFree() {
     // If the violations list has not been initialized, there
     // are no violations. This prevents a `NullPointerException` when
@@ -0,0 +1,80 @@
+package com.deque.html.axecore.results;
+
+/**
+ * The time a rule took, measured with the axe performance timer: in total, and in gathering the
+ * elements, matching them and running the checks. Times are summed over the frames (or pages) the
+ * rule ran in.
+ */
+public class RuleTiming {
+  private String ruleId;
+  private int count;
+  private double totalMillis;
+  private double maxMillis;
+  private double gatherMillis;
+  private double matchesMillis;
+  private double checksMillis;
+
+  public RuleTiming() {}
+
+  public RuleTiming(final String ruleId) {
+    this.ruleId = ruleId;
+  }
+
+  public String getRuleId() {
+    return ruleId;
+  }
+
+  public void setRuleId(final String ruleId) {
+    this.ruleId = ruleId;
+  }
+
+  // the number of times the rule was measured, one per frame
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(final int count) {
+    this.count = count;
+  }
+
+  public double getTotalMillis() {
+    return totalMillis;
+  }
+
+  public void setTotalMillis(final double totalMillis) {
+    this.totalMillis = totalMillis;
+  }
+
+  // the longest single run of the rule
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  public void setMaxMillis(final double maxMillis) {
+    this.maxMillis = maxMillis;
+  }
+
+  public double getGatherMillis() {
+    return gatherMillis;
+  }
+
+  public void setGatherMillis(final double gatherMillis) {
+    this.gatherMillis = gatherMillis;
+  }
+
+  public double getMatchesMillis() {
+    return matchesMillis;
+  }
+
+  public void setMatchesMillis(final double matchesMillis) {
+    this.matchesMillis = matchesMillis;
+  }
+
+  public double getChecksMillis() {
+    return checksMillis;
+  }
+
+  public void setChecksMillis(final double checksMillis) {
+    this.checksMillis = checksMillis;
+  }
+}
@@ -0,0 +1,36 @@
+package com.deque.html.axecore.results;
+
+/** A frame left out of the results because it did not finish within its time budget. */
+public class SkippedFrame {
+  /** the frame took longer than the per-frame timeout. */
+  public static final String FRAME_TIMEOUT = "frame-timeout";
+
+  /** the frame was not scanned because the whole scan budget was spent. */
+  public static final String SCAN_BUDGET = "scan-budget";
+
+  private Object frameSelector;
+  private String reason;
+
+  public SkippedFrame() {}
+
+  public SkippedFrame(final Object frameSelector, final String reason) {
+    this.frameSelector = frameSelector;
+    this.reason = reason;
+  }
+
+  public Object getFrameSelector() {
+    return frameSelector;
+  }
+
+  public void setFrameSelector(final Object frameSelector) {
+    this.frameSelector = frameSelector;
+  }
+
+  public String getReason() {
+    return reason;
+  }
+
+  public void setReason(final String reason) {
+    this.reason = reason;
+  }
+}
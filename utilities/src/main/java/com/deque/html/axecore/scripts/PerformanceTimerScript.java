@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.scripts;
+
+/** browser script that reads the rule timings measured by the axe performance timer. */
+public final class PerformanceTimerScript {
+
+  /**
+   * A JavaScript function expression returning, as a JSON string, the name and duration in
+   * milliseconds of each measure the axe performance timer recorded in the frame since the last
+   * call ({@code rule_<id>}, {@code rule_<id>#<phase>} and {@code runchecks_<id>}). The measures
+   * and the marks of the axe performance timer are cleared, so each rule run is read once; other
+   * entries of the page's performance timeline are left alone.
+   */
+  public static final String FUNCTION =
+      "() => {"
+          + "  const perf = window.performance;"
+          + "  if (!perf || typeof perf.getEntriesByType !== 'function') {"
+          + "    return '[]';"
+          + "  }"
+          + "  const measures = perf"
+          + "    .getEntriesByType('measure')"
+          + "    .filter(m => /^(rule_|runchecks_)/.test(m.name));"
+          + "  const timings = measures.map(m => [m.name, m.duration]);"
+          + "  new Set(measures.map(m => m.name)).forEach(name => perf.clearMeasures(name));"
+          + "  new Set("
+          + "    perf"
+          + "      .getEntriesByType('mark')"
+          + "      .map(m => m.name)"
+          + "      .filter(name => /^mark_(rule|runchecks|gather|matches|isHidden)_/.test(name))"
+          + "  ).forEach(name => perf.clearMarks(name));"
+          + "  return JSON.stringify(timings);"
+          + "}";
+
+  private PerformanceTimerScript() {}
+}
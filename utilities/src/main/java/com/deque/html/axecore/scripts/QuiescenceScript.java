@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.scripts;
+
+/** browser script that waits for a page to settle before it is scanned. */
+public final class QuiescenceScript {
+
+  /**
+   * A JavaScript function expression taking a quiet period and a timeout, both in milliseconds,
+   * and returning a promise. The promise resolves to true once the page has had no DOM mutations,
+   * no pending fetch or XMLHttpRequest requests and no running finite animations for the quiet
+   * period, or to false when the timeout is reached first. Requests are counted from the first
+   * call on a page, so requests started before that are not waited for.
+   */
+  public static final String FUNCTION =
+      "(quietMillis, timeoutMillis) => new Promise(resolve => {"
+          + "  const start = Date.now();"
+          + "  if (!window.__axePendingRequests) {"
+          + "    const pending = (window.__axePendingRequests = { count: 0 });"
+          + "    const done = () => { pending.count = Math.max(0, pending.count - 1); };"
+          + "    const fetch = window.fetch;"
+          + "    if (fetch) {"
+          + "      window.fetch = function () {"
+          + "        pending.count++;"
+          + "        try {"
+          + "          const request = fetch.apply(this, arguments);"
+          + "          request.then(done, done);"
+          + "          return request;"
+          + "        } catch (e) {"
+          + "          done();"
+          + "          throw e;"
+          + "        }"
+          + "      };"
+          + "    }"
+          + "    const send = XMLHttpRequest.prototype.send;"
+          + "    XMLHttpRequest.prototype.send = function () {"
+          + "      pending.count++;"
+          + "      this.addEventListener('loadend', done, { once: true });"
+          + "      return send.apply(this, arguments);"
+          + "    };"
+          + "  }"
+          + "  const animating = () =>"
+          + "    typeof document.getAnimations === 'function' &&"
+          + "    document.getAnimations().some(animation =>"
+          + "      animation.playState === 'running' &&"
+          + "      animation.effect &&"
+          + "      isFinite(animation.effect.getComputedTiming().endTime));"
+          + "  let quietSince = start;"
+          + "  const observer = new MutationObserver(() => { quietSince = Date.now(); });"
+          + "  observer.observe(document, {"
+          + "    subtree: true, childList: true, attributes: true, characterData: true"
+          + "  });"
+          + "  const check = () => {"
+          + "    const now = Date.now();"
+          + "    if (window.__axePendingRequests.count > 0 || animating()) { quietSince = now; }"
+          + "    const settled = now - quietSince >= quietMillis;"
+          + "    if (settled || now - start >= timeoutMillis) {"
+          + "      observer.disconnect();"
+          + "      resolve(settled);"
+          + "    } else {"
+          + "      setTimeout(check, Math.min(50, quietMillis));"
+          + "    }"
+          + "  };"
+          + "  check();"
+          + "})";
+
+  private QuiescenceScript() {}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class BaselineDiffTest {
+
+  @Test
+  public void fingerprintIgnoresWhitespace() {
+    assertEquals(
+        ViolationFingerprint.of("image-alt", "#main  > img", "<img\n  src=\"a.png\">"),
+        ViolationFingerprint.of("image-alt", " #main > img ", "<img src=\"a.png\">"));
+  }
+
+  @Test
+  public void fingerprintDependsOnEveryPart() {
+    long fingerprint = ViolationFingerprint.of("image-alt", "img", "<img>");
+
+    assertNotEquals(fingerprint, ViolationFingerprint.of("role-img-alt", "img", "<img>"));
+    assertNotEquals(fingerprint, ViolationFingerprint.of("image-alt", "main img", "<img>"));
+    assertNotEquals(fingerprint, ViolationFingerprint.of("image-alt", "img", "<img src=\"\">"));
+  }
+
+  @Test
+  public void fingerprintKeepsFramePathOrder() {
+    assertNotEquals(
+        ViolationFingerprint.of("label", Arrays.asList("#ifr", "input"), "<input>"),
+        ViolationFingerprint.of("label", Arrays.asList("input", "#ifr"), "<input>"));
+  }
+
+  @Test
+  public void shouldSplitAddedRemovedAndUnchanged() {
+    List<Rule> baseline =
+        Arrays.asList(rule("image-alt", "#a", "#b"), rule("label", Arrays.asList("#ifr", "input")));
+    List<Rule> current = Arrays.asList(rule("image-alt", "#b", "#c"));
+
+    BaselineDiff diff = BaselineDiff.compute(baseline, current);
+
+    assertEquals(Arrays.asList("#c"), targets(diff.getAdded()));
+    assertEquals(Arrays.asList("#a", "[#ifr, input]"), targets(diff.getRemoved()));
+    assertEquals(Arrays.asList("#b"), targets(diff.getUnchanged()));
+    assertTrue(diff.hasNewViolations());
+  }
+
+  @Test
+  public void shouldMatchDuplicateFingerprintsOneForOne() {
+    List<Rule> baseline = Arrays.asList(rule("duplicate-id", "#x", "#x"));
+
+    BaselineDiff fewer = BaselineDiff.compute(baseline, Arrays.asList(rule("duplicate-id", "#x")));
+    assertEquals(1, fewer.getUnchanged().size());
+    assertEquals(1, fewer.getRemoved().size());
+    assertFalse(fewer.hasNewViolations());
+
+    BaselineDiff more =
+        BaselineDiff.compute(baseline, Arrays.asList(rule("duplicate-id", "#x", "#x", "#x")));
+    assertEquals(2, more.getUnchanged().size());
+    assertEquals(1, more.getAdded().size());
+    assertTrue(more.getRemoved().isEmpty());
+  }
+
+  @Test
+  public void shouldHandleEmptyAndNullInputs() {
+    BaselineDiff diff = BaselineDiff.compute(null, Collections.emptyList());
+
+    assertTrue(diff.getAdded().isEmpty());
+    assertTrue(diff.getRemoved().isEmpty());
+    assertTrue(diff.getUnchanged().isEmpty());
+  }
+
+  @Test
+  public void shouldScaleToLargeBaselines() {
+    int nodes = 200_000;
+    String[] baselineTargets = new String[nodes];
+    String[] currentTargets = new String[nodes];
+    for (int i = 0; i < nodes; i++) {
+      baselineTargets[i] = "#n" + i;
+      currentTargets[i] = "#n" + (i + nodes / 2);
+    }
+
+    BaselineDiff diff =
+        BaselineDiff.compute(
+            Collections.singletonList(rule("region", (Object[]) baselineTargets)),
+            Collections.singletonList(rule("region", (Object[]) currentTargets)));
+
+    assertEquals(nodes / 2, diff.getAdded().size());
+    assertEquals(nodes / 2, diff.getRemoved().size());
+    assertEquals(nodes / 2, diff.getUnchanged().size());
+  }
+
+  @Test
+  public void mapShouldKeepCountsAcrossGrowth() {
+    LongIntHashMap map = new LongIntHashMap(0);
+    for (long key = 0; key < 1_000; key++) {
+      map.increment(key << 32);
+      map.increment(key << 32);
+    }
+
+    assertEquals(2, map.get(7L << 32));
+    assertTrue(map.decrement(7L << 32));
+    assertTrue(map.decrement(7L << 32));
+    assertFalse(map.decrement(7L << 32));
+    assertEquals(0, map.get(7L << 32));
+    assertEquals(2, map.get(999L << 32));
+    assertEquals(0, map.get(1_000L << 32));
+  }
+
+  private static Rule rule(final String id, final Object... targets) {
+    Rule rule = new Rule();
+    rule.setId(id);
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (Object target : targets) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(target);
+      node.setHtml("<div id=\"" + target + "\"></div>");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+
+  private static List<String> targets(final List<FingerprintedViolation> violations) {
+    List<String> targets = new ArrayList<>();
+    for (FingerprintedViolation violation : violations) {
+      targets.add(String.valueOf(violation.getNode().getTarget()));
+    }
+    return targets;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.baseline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.CheckedNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaselineStoreTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldFindWrittenFingerprints() throws IOException {
+    Path path = folder.newFile("baseline.axeb").toPath();
+    BaselineStore.Writer writer = BaselineStore.writer();
+    for (long i = 0; i < 10_000; i++) {
+      writer.add("image-alt", i * 31);
+      writer.add("label", -i);
+    }
+    writer.add("label", 0).write(path);
+
+    try (BaselineStore store = BaselineStore.open(path)) {
+      assertEquals(20_000, store.size());
+      assertEquals(new HashSet<>(Arrays.asList("image-alt", "label")), store.getRuleIds());
+      assertTrue(store.contains("image-alt", 0));
+      assertTrue(store.contains("image-alt", 9_999 * 31));
+      assertFalse(store.contains("image-alt", 32));
+      assertTrue(store.contains("label", -5_000));
+      assertFalse(store.contains("label", 1));
+      assertFalse(store.contains("region", 0));
+    }
+  }
+
+  @Test
+  public void shouldRemoveKnownViolations() throws IOException {
+    Path path = folder.newFile("baseline.axeb").toPath();
+    BaselineStore.writer()
+        .addViolations(Arrays.asList(rule("image-alt", "#a", "#b"), rule("label", "#c")))
+        .write(path);
+
+    try (BaselineStore store = BaselineStore.open(path)) {
+      List<com.deque.html.axecore.results.Rule> remaining =
+          store.removeKnownViolations(
+              Arrays.asList(
+                  rule("image-alt", "#a", "#new"), rule("label", "#c"), rule("region", "#d")));
+
+      assertEquals(2, remaining.size());
+      assertEquals("image-alt", remaining.get(0).getId());
+      assertEquals(1, remaining.get(0).getNodes().size());
+      assertEquals("#new", remaining.get(0).getNodes().get(0).getTarget());
+      assertEquals("region", remaining.get(1).getId());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectOtherFiles() throws IOException {
+    Path path = folder.newFile("results.json").toPath();
+    Files.write(path, "{\"violations\":[],\"passes\":[]}".getBytes());
+
+    BaselineStore.open(path);
+  }
+
+  private static com.deque.html.axecore.results.Rule rule(
+      final String id, final String... targets) {
+    com.deque.html.axecore.results.Rule rule = new com.deque.html.axecore.results.Rule();
+    rule.setId(id);
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (String target : targets) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(target);
+      node.setHtml("<div></div>");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.Check;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Compares the Smile encoding of results with their JSON encoding. Sizes and mean encode and decode
+ * times are appended to target/benchmarks/results-encoding.csv so runs can be compared over time.
+ */
+public class ResultsEncodingBenchmarkTest {
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 10;
+
+  /**
+   * the largest Smile size, as a share of the JSON size, of the generated results. Smile measured
+   * 48 to 49% of the JSON size for these results, as every node repeats the same check texts, which
+   * Smile back-references.
+   */
+  private static final double MAX_SMILE_RATIO = 0.55;
+
+  private final ObjectMapper mapper =
+      new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  @Test
+  public void smileIsSmallerThanJson() throws IOException {
+    File dir = new File("target/benchmarks");
+    dir.mkdirs();
+    File csv = new File(dir, "results-encoding.csv");
+    boolean writeHeader = !csv.exists();
+    try (Writer report = new FileWriter(csv, true)) {
+      if (writeHeader) {
+        report.write(
+            "nodes,jsonBytes,smileBytes,jsonEncodeMillis,jsonDecodeMillis,smileEncodeMillis,"
+                + "smileDecodeMillis\n");
+      }
+      for (int nodeCount : new int[] {100, 1_000, 10_000}) {
+        Results results = results(nodeCount);
+
+        byte[] json = mapper.writeValueAsBytes(results);
+        byte[] smile = SmileResultsCodec.encode(results);
+        assertEquals(
+            mapper.readTree(json),
+            mapper.readTree(
+                mapper.writeValueAsBytes(SmileResultsCodec.decode(smile, Results.class))));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+          mapper.writeValueAsBytes(results);
+          mapper.readValue(json, Results.class);
+          SmileResultsCodec.decode(SmileResultsCodec.encode(results), Results.class);
+        }
+        long jsonEncode = 0;
+        long jsonDecode = 0;
+        long smileEncode = 0;
+        long smileDecode = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+          long start = System.nanoTime();
+          mapper.writeValueAsBytes(results);
+          jsonEncode += System.nanoTime() - start;
+          start = System.nanoTime();
+          mapper.readValue(json, Results.class);
+          jsonDecode += System.nanoTime() - start;
+          start = System.nanoTime();
+          SmileResultsCodec.encode(results);
+          smileEncode += System.nanoTime() - start;
+          start = System.nanoTime();
+          SmileResultsCodec.decode(smile, Results.class);
+          smileDecode += System.nanoTime() - start;
+        }
+
+        report.write(
+            String.format(
+                "%d,%d,%d,%.3f,%.3f,%.3f,%.3f%n",
+                nodeCount,
+                json.length,
+                smile.length,
+                jsonEncode / 1e6 / ROUNDS,
+                jsonDecode / 1e6 / ROUNDS,
+                smileEncode / 1e6 / ROUNDS,
+                smileDecode / 1e6 / ROUNDS));
+        report.flush();
+        assertTrue(
+            nodeCount + " nodes: Smile " + smile.length + " bytes, JSON " + json.length + " bytes",
+            smile.length <= json.length * MAX_SMILE_RATIO);
+      }
+    }
+  }
+
+  /** results shaped like a scan of a large form: few rules, many nodes with repeated checks. */
+  private static Results results(final int nodeCount) {
+    String[] ruleIds = {"label", "color-contrast", "image-alt", "link-name", "region"};
+    List<Rule> violations = new ArrayList<>();
+    for (int r = 0; r < ruleIds.length; r++) {
+      Rule rule = new Rule();
+      rule.setId(ruleIds[r]);
+      rule.setImpact(r % 2 == 0 ? "critical" : "serious");
+      rule.setDescription("Ensures every element passes the " + ruleIds[r] + " rule");
+      rule.setHelp("Elements must pass the " + ruleIds[r] + " rule");
+      rule.setHelpUrl("https://dequeuniversity.com/rules/axe/4.10/" + ruleIds[r]);
+      rule.setTags(Arrays.asList("cat.forms", "wcag2a", "wcag412", "section508"));
+      List<CheckedNode> nodes = new ArrayList<>();
+      for (int n = r; n < nodeCount; n += ruleIds.length) {
+        Check check = new Check();
+        check.setId(ruleIds[r] + "-check");
+        check.setImpact(rule.getImpact());
+        check.setMessage("Element does not have an accessible " + ruleIds[r]);
+        CheckedNode node = new CheckedNode();
+        node.setImpact(rule.getImpact());
+        node.setHtml("<input type=\"text\" name=\"field" + n + "\" id=\"field-" + n + "\">");
+        node.setTarget(Arrays.asList("#field-" + n));
+        node.setFailureSummary(
+            "Fix any of the following:\n  Element does not have an accessible " + ruleIds[r]);
+        node.setAny(Arrays.asList(check));
+        node.setAll(new ArrayList<>());
+        node.setNone(new ArrayList<>());
+        nodes.add(node);
+      }
+      rule.setNodes(nodes);
+      violations.add(rule);
+    }
+    Results results = new Results();
+    results.setUrl("https://example.com/form");
+    results.setTimestamp("2026-01-01T00:00:00.000Z");
+    results.setViolations(violations);
+    return results;
+  }
+}
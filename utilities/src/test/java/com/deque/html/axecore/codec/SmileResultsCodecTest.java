@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.AxeResults;
+import com.deque.html.axecore.results.Check;
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SmileResultsCodecTest {
+  private final ObjectMapper json =
+      new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  @Test
+  public void shouldRoundTripResults() throws IOException {
+    Results results = results(20, 50);
+    byte[] smile = SmileResultsCodec.encode(results);
+
+    Results decoded = SmileResultsCodec.decode(smile, Results.class);
+    assertEquals(json.writeValueAsString(results), json.writeValueAsString(decoded));
+
+    AxeResults axeResults =
+        SmileResultsCodec.decode(new ByteArrayInputStream(smile), AxeResults.class);
+    assertEquals(json.writeValueAsString(results), json.writeValueAsString(axeResults));
+  }
+
+  @Test
+  public void shouldTranscodeBetweenJsonAndSmile() throws IOException {
+    Results results = results(5, 10);
+    byte[] original = json.writeValueAsBytes(results);
+
+    ByteArrayOutputStream smile = new ByteArrayOutputStream();
+    SmileResultsCodec.jsonToSmile(new ByteArrayInputStream(original), smile);
+    ByteArrayOutputStream back = new ByteArrayOutputStream();
+    SmileResultsCodec.smileToJson(new ByteArrayInputStream(smile.toByteArray()), back);
+
+    assertEquals(json.readTree(original), json.readTree(back.toByteArray()));
+    Results decoded = SmileResultsCodec.decode(smile.toByteArray(), Results.class);
+    assertEquals(json.writeValueAsString(results), json.writeValueAsString(decoded));
+  }
+
+  @Test
+  public void shouldBeSmallerThanJson() throws IOException {
+    Results results = results(20, 200);
+    ByteArrayOutputStream smile = new ByteArrayOutputStream();
+    SmileResultsCodec.encode(results, smile);
+
+    assertTrue(smile.size() < json.writeValueAsBytes(results).length);
+  }
+
+  private static Results results(final int ruleCount, final int nodeCount) {
+    List<Rule> violations = new ArrayList<>();
+    for (int r = 0; r < ruleCount; r++) {
+      Rule rule = new Rule();
+      rule.setId("rule-" + r);
+      rule.setImpact(r % 2 == 0 ? "serious" : "critical");
+      rule.setDescription("Ensures rule " + r + " holds");
+      rule.setHelp("Rule " + r + " must hold");
+      rule.setHelpUrl("https://dequeuniversity.com/rules/axe/4.10/rule-" + r);
+      rule.setTags(Arrays.asList("cat.forms", "wcag2a", "wcag412"));
+      List<CheckedNode> nodes = new ArrayList<>();
+      for (int n = 0; n < nodeCount; n++) {
+        Check check = new Check();
+        check.setId("check-" + r);
+        check.setImpact(rule.getImpact());
+        check.setMessage("Element does not satisfy check " + r);
+        CheckedNode node = new CheckedNode();
+        node.setImpact(rule.getImpact());
+        node.setHtml("<input type=\"text\" id=\"field-" + n + "\">");
+        node.setTarget(Arrays.asList("#field-" + n));
+        node.setFailureSummary("Fix any of the following:\n  Element does not satisfy check " + r);
+        node.setAny(Arrays.asList(check));
+        node.setAll(new ArrayList<>());
+        node.setNone(new ArrayList<>());
+        nodes.add(node);
+      }
+      rule.setNodes(nodes);
+      violations.add(rule);
+    }
+    Results results = new Results();
+    results.setUrl("https://example.com/");
+    results.setTimestamp("2026-01-01T00:00:00.000Z");
+    results.setViolations(violations);
+    results.setPasses(new ArrayList<>());
+    return results;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+
+package com.deque.html.axecore.crawl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class AdaptiveRuleSelectorTest {
+
+  @Test
+  public void shouldGroupUrlsByTemplate() {
+    assertEquals(
+        "shop.example.com/products/*/reviews",
+        AdaptiveRuleSelector.pathTemplate("https://shop.example.com/products/123/reviews?page=2"));
+    assertEquals(
+        "localhost:8080/blog/*/*/hello",
+        AdaptiveRuleSelector.pathTemplate("http://localhost:8080/blog/2024/05/hello#top"));
+  }
+
+  @Test
+  public void shouldLeaveOutRulesInapplicableToTheTemplate() {
+    AdaptiveRuleSelector selector = new AdaptiveRuleSelector(5, 2);
+    String first = "https://example.com/products/1";
+    String second = "https://example.com/products/2";
+
+    assertNull(selector.selectRules(first));
+    selector.record(first, results(Arrays.asList("image-alt"), Arrays.asList("region", "video")));
+    assertEquals(
+        Arrays.asList("image-alt", "region", "video"), selector.selectRules(second));
+    selector.record(second, results(Arrays.asList("image-alt", "region"), Arrays.asList("video")));
+
+    // video was inapplicable twice in a row, region applied the second time
+    assertEquals(Arrays.asList("image-alt", "region"), selector.selectRules(first));
+    selector.record(first, results(Arrays.asList("image-alt"), Arrays.asList("region")));
+    assertEquals(Arrays.asList("image-alt", "region"), selector.selectRules(first));
+    selector.record(first, results(Arrays.asList("image-alt"), Arrays.asList("region")));
+
+    // the fifth scan of the template runs every rule, and brings video back once it applies
+    assertNull(selector.selectRules(first));
+    selector.record(first, results(Arrays.asList("image-alt", "video"), Arrays.asList("region")));
+    assertEquals(Arrays.asList("image-alt", "video"), selector.selectRules(first));
+
+    // other templates have their own statistics
+    assertNull(selector.selectRules("https://example.com/cart"));
+  }
+
+  @Test
+  public void shouldScanInFullWhenNoRuleApplies() {
+    AdaptiveRuleSelector selector = new AdaptiveRuleSelector(10, 1, url -> "all");
+    selector.record("a", results(new ArrayList<>(), Arrays.asList("video")));
+
+    assertNull(selector.selectRules("b"));
+  }
+
+  private static Results results(final List<String> passes, final List<String> inapplicable) {
+    Results results = new Results();
+    results.setViolations(new ArrayList<>());
+    results.setPasses(rules(passes));
+    results.setInapplicable(rules(inapplicable));
+    return results;
+  }
+
+  private static List<Rule> rules(final List<String> ids) {
+    List<Rule> rules = new ArrayList<>();
+    for (String id : ids) {
+      Rule rule = new Rule();
+      rule.setId(id);
+      rules.add(rule);
+    }
+    return rules;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class CrawlAggregatorTest {
+
+  @Test
+  public void shouldGroupSharedViolationsAcrossPages() {
+    List<ViolationGroup> groups;
+    try (CrawlAggregator aggregator = new CrawlAggregator()) {
+      for (int page = 0; page < 100; page++) {
+        aggregator.addPage(
+            "https://example.com/" + page,
+            Arrays.asList(rule("image-alt", "header > img"), rule("label", "#field-" + page)));
+      }
+
+      groups = aggregator.getGroups();
+      assertEquals(101, groups.size());
+      assertEquals(200, aggregator.getNodeCount());
+      assertEquals("https://example.com/99", aggregator.getPages().get(99));
+    }
+
+    ViolationGroup header = groups.get(0);
+    assertEquals("image-alt", header.getRuleId());
+    assertEquals(100, header.getPageCount());
+    assertEquals(0, header.getPages()[0]);
+    assertEquals(99, header.getPages()[99]);
+    assertEquals(1, groups.get(1).getPageCount());
+  }
+
+  @Test
+  public void shouldCountRepeatedNodesOnOnePageOnce() {
+    ViolationGroup group;
+    try (CrawlAggregator aggregator = new CrawlAggregator(1)) {
+      aggregator.addPage("a", Arrays.asList(rule("duplicate-id", "#x", "#x")));
+      aggregator.addPage("b", Arrays.asList(rule("duplicate-id", "#x")));
+      group = aggregator.getGroups().get(0);
+    }
+
+    assertEquals(2, group.getPageCount());
+    assertEquals(3, group.getOccurrences());
+    assertArrayEquals(new int[] {0, 1}, group.getPages());
+  }
+
+  @Test
+  public void shouldStreamAggregateAsJson() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (CrawlAggregator aggregator = new CrawlAggregator()) {
+      aggregator.addPage("a", Arrays.asList(rule("image-alt", "header > img")));
+      aggregator.addPage("b", null);
+      aggregator.addPage("c", Arrays.asList(rule("image-alt", "header > img")));
+      aggregator.writeTo(out);
+    }
+    JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+
+    assertEquals(2, json.get("nodeCount").asInt());
+    assertEquals("b", json.get("pages").get(1).asText());
+    JsonNode violation = json.get("violations").get(0);
+    assertEquals("image-alt", violation.get("ruleId").asText());
+    assertEquals(2, violation.get("pageCount").asInt());
+    assertEquals(2, violation.get("pages").get(1).asInt());
+    assertEquals("header > img", violation.get("node").get("target").asText());
+  }
+
+  @Test
+  public void shouldReadPageListsBackInBatches() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (CrawlAggregator aggregator = new CrawlAggregator(4, 3)) {
+      for (int page = 0; page < 10; page++) {
+        aggregator.addPage(
+            "https://example.com/" + page,
+            Arrays.asList(rule("image-alt", "header > img"), rule("label", "#field-" + page % 2)));
+      }
+      aggregator.writeTo(out);
+    }
+    JsonNode violations = new ObjectMapper().readTree(out.toByteArray()).get("violations");
+
+    assertEquals(3, violations.size());
+    assertEquals(10, violations.get(0).get("pages").size());
+    assertEquals(9, violations.get(0).get("pages").get(9).asInt());
+    assertEquals(5, violations.get(1).get("pageCount").asInt());
+    assertEquals(8, violations.get(1).get("pages").get(4).asInt());
+    assertEquals(9, violations.get(2).get("pages").get(4).asInt());
+    assertEquals("#field-1", violations.get(2).get("node").get("target").asText());
+  }
+
+  private static Rule rule(final String id, final String... targets) {
+    Rule rule = new Rule();
+    rule.setId(id);
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (String target : targets) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(target);
+      node.setHtml("<div></div>");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.crawl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.Rule;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NdjsonResultSinkTest {
+  @org.junit.Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldReadPlainRecordsByUrlAndViolation() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("results.ndjson");
+    try (NdjsonResultSink sink = new NdjsonResultSink(path)) {
+      for (int page = 0; page < 10; page++) {
+        sink.add(results("https://example.com/" + page, page % 3 == 0 ? "label" : "image-alt"));
+      }
+    }
+    assertEquals(10, Files.readAllLines(path).size());
+
+    NdjsonResultReader reader = new NdjsonResultReader(path);
+    assertEquals(10, reader.size());
+    assertEquals("https://example.com/7", reader.read("https://example.com/7").getUrl());
+    assertNull(reader.read("https://example.com/missing"));
+    assertEquals(
+        Arrays.asList(
+            "https://example.com/0",
+            "https://example.com/3",
+            "https://example.com/6",
+            "https://example.com/9"),
+        urls(reader, "label"));
+  }
+
+  @Test
+  public void shouldAppendGzipBlocksAcrossSinks() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("results.ndjson.gz");
+    try (NdjsonResultSink sink = new NdjsonResultSink(path, 4)) {
+      for (int page = 0; page < 10; page++) {
+        sink.add(results("https://example.com/" + page, page == 5 ? "label" : "image-alt"));
+      }
+    }
+    try (NdjsonResultSink sink = new NdjsonResultSink(path, 4)) {
+      sink.add(results("https://example.com/\ttabbed", "label"));
+    }
+
+    NdjsonResultReader reader = new NdjsonResultReader(path);
+    assertEquals(11, reader.size());
+    assertEquals("https://example.com/\ttabbed", reader.getUrls().get(10));
+    assertEquals("https://example.com/6", reader.read("https://example.com/6").getUrl());
+    assertEquals(
+        Arrays.asList("https://example.com/5", "https://example.com/\ttabbed"),
+        urls(reader, "label"));
+
+    List<String> serious = new ArrayList<>();
+    reader.forEachWithImpact("serious", results -> serious.add(results.getUrl()));
+    assertEquals(11, serious.size());
+
+    List<String> all = new ArrayList<>();
+    reader.forEach(results -> all.add(results.getUrl()));
+    assertEquals(reader.getUrls(), all);
+
+    // concatenated gzip members read as one stream
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+      int lines = 0;
+      int b;
+      while ((b = in.read()) != -1) {
+        lines += b == '\n' ? 1 : 0;
+      }
+      assertEquals(11, lines);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectAppendingInAnotherFormat() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("results.ndjson");
+    try (NdjsonResultSink sink = new NdjsonResultSink(path)) {
+      sink.add(results("https://example.com/", "label"));
+    }
+    new NdjsonResultSink(path, 16).close();
+  }
+
+  private static List<String> urls(final NdjsonResultReader reader, final String ruleId)
+      throws IOException {
+    List<String> urls = new ArrayList<>();
+    reader.forEachWithViolation(ruleId, results -> urls.add(results.getUrl()));
+    return urls;
+  }
+
+  private static Results results(final String url, final String ruleId) {
+    Rule rule = new Rule();
+    rule.setId(ruleId);
+    rule.setImpact("serious");
+    CheckedNode node = new CheckedNode();
+    node.setTarget(Arrays.asList("#" + ruleId));
+    node.setHtml("<div></div>");
+    rule.setNodes(Arrays.asList(node));
+
+    Results results = new Results();
+    results.setUrl(url);
+    results.setViolations(Arrays.asList(rule));
+    return results;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+
+package com.deque.html.axecore.crawl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.Results;
+import com.deque.html.axecore.results.RuleTiming;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class RuleTimingAggregatorTest {
+  private static final double DELTA = 0.0001;
+
+  @Test
+  public void shouldSumMeasuresOfEachFrame() {
+    RuleTimingAggregator aggregator = new RuleTimingAggregator();
+    aggregator.addMeasures(
+        "[[\"rule_region#gather\",1.5],[\"rule_region#matches\",0.5],"
+            + "[\"runchecks_region\",8],[\"rule_region\",10],"
+            + "[\"rule_color-contrast\",30],[\"runchecks_color-contrast\",28]]");
+    aggregator.addMeasures("[[\"rule_region\",4],[\"rule_region#gather\",0.5]]");
+
+    List<RuleTiming> timings = aggregator.getTimings();
+    assertEquals(2, timings.size());
+    RuleTiming contrast = timings.get(0);
+    assertEquals("color-contrast", contrast.getRuleId());
+    assertEquals(1, contrast.getCount());
+    assertEquals(28, contrast.getChecksMillis(), DELTA);
+
+    RuleTiming region = timings.get(1);
+    assertEquals("region", region.getRuleId());
+    assertEquals(2, region.getCount());
+    assertEquals(14, region.getTotalMillis(), DELTA);
+    assertEquals(10, region.getMaxMillis(), DELTA);
+    assertEquals(2, region.getGatherMillis(), DELTA);
+    assertEquals(0.5, region.getMatchesMillis(), DELTA);
+    assertEquals(8, region.getChecksMillis(), DELTA);
+  }
+
+  @Test
+  public void shouldRankRulesAcrossPages() {
+    RuleTimingAggregator aggregator = new RuleTimingAggregator();
+    for (int page = 0; page < 10; page++) {
+      Results results = new Results();
+      results.setRuleTimings(
+          Arrays.asList(timing("color-contrast", 20 + page), timing("image-alt", 1)));
+      aggregator.addPage(results);
+    }
+    aggregator.addPage(new Results());
+
+    List<RuleTiming> hottest = aggregator.getHottest(1);
+    assertEquals(1, hottest.size());
+    assertEquals("color-contrast", hottest.get(0).getRuleId());
+    assertEquals(10, hottest.get(0).getCount());
+    assertEquals(245, hottest.get(0).getTotalMillis(), DELTA);
+    assertEquals(29, hottest.get(0).getMaxMillis(), DELTA);
+
+    hottest.get(0).setTotalMillis(0);
+    assertEquals(245, aggregator.getTimings().get(0).getTotalMillis(), DELTA);
+    assertEquals(2, aggregator.getHottest(5).size());
+  }
+
+  @Test
+  public void shouldLeaveResultsWithoutTimingsOut() {
+    RuleTimingAggregator aggregator = new RuleTimingAggregator();
+    aggregator.addMeasures("[]");
+    aggregator.addPage(new Results());
+
+    assertTrue(aggregator.isEmpty());
+    assertNull(new Results().getRuleTimings());
+  }
+
+  private static RuleTiming timing(final String ruleId, final double millis) {
+    RuleTiming timing = new RuleTiming(ruleId);
+    timing.setCount(1);
+    timing.setTotalMillis(millis);
+    timing.setMaxMillis(millis);
+    return timing;
+  }
+}
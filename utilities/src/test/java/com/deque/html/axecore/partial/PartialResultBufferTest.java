@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+
+package com.deque.html.axecore.partial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class PartialResultBufferTest {
+
+  @Test
+  public void shouldReadTheSameArrayFromMemoryAndDisk() {
+    List<String> results = Arrays.asList("{\"a\":1}", null, "{\"b\":\"é中\"}", "{}");
+    try (PartialResultBuffer memory = new PartialResultBuffer();
+        PartialResultBuffer disk = new PartialResultBuffer(10)) {
+      memory.addAll(results);
+      disk.addAll(results);
+
+      assertFalse(memory.isSpilled());
+      assertTrue(disk.isSpilled());
+      assertEquals(4, disk.size());
+      String expected = "[{\"a\":1},null,{\"b\":\"é中\"},{}]";
+      assertEquals(expected, read(memory, 1000));
+      assertEquals(expected, read(disk, 1000));
+      assertEquals(expected, read(disk, 3));
+    }
+  }
+
+  @Test
+  public void shouldTruncateSpilledResults() {
+    try (PartialResultBuffer buffer = new PartialResultBuffer(0)) {
+      buffer.add("{\"top\":true}");
+      buffer.add("{\"child\":1}");
+      buffer.add("{\"grandchild\":1}");
+      buffer.truncate(1);
+      buffer.add(null);
+      buffer.add("{\"child\":2}");
+
+      assertEquals(3, buffer.size());
+      assertEquals("[{\"top\":true},null,{\"child\":2}]", read(buffer, 7));
+      buffer.truncate(0);
+      assertEquals("[]", read(buffer, 7));
+    }
+  }
+
+  @Test
+  public void shouldNotSplitSurrogatePairs() {
+    try (PartialResultBuffer buffer = new PartialResultBuffer()) {
+      buffer.add("\"😀😀\"");
+      List<String> chunks = new ArrayList<>();
+      buffer.forEachChunk(3, chunks::add);
+
+      for (String chunk : chunks) {
+        assertTrue(chunk.length() <= 3);
+        assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+      }
+      assertEquals("[\"😀😀\"]", String.join("", chunks));
+    }
+  }
+
+  private static String read(final PartialResultBuffer buffer, final int maxChunkLength) {
+    StringBuilder text = new StringBuilder();
+    buffer.forEachChunk(
+        maxChunkLength,
+        chunk -> {
+          assertTrue(chunk.length() <= maxChunkLength);
+          text.append(chunk);
+        });
+    return text.toString();
+  }
+}
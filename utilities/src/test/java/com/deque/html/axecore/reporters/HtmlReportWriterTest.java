@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class HtmlReportWriterTest {
+  private static final Pattern CHUNK =
+      Pattern.compile(
+          "<script type=\"application/json\" class=\"axe-chunk\" data-count=\"(\\d+)\">(.*?)"
+              + "</script>");
+  private static final Pattern SUMMARY =
+      Pattern.compile("<script type=\"application/json\" id=\"axe-summary\">(.*?)</script>");
+
+  @Test
+  public void shouldEmbedNodesInChunks() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (HtmlReportWriter writer = new HtmlReportWriter(out, "Crawl <report>")) {
+      writer.addScan(
+          "https://example.com/a",
+          Arrays.asList(rule("label", HtmlReportWriter.CHUNK_SIZE + 1), rule("image-alt", 2)));
+      writer.addScan("https://example.com/b", null);
+      writer.addScan("https://example.com/c", Arrays.asList(rule("label", 3)));
+    }
+    String html = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    ObjectMapper mapper = new ObjectMapper();
+
+    Matcher chunks = CHUNK.matcher(html);
+    List<Integer> counts = new ArrayList<>();
+    int nodes = 0;
+    while (chunks.find()) {
+      JsonNode chunk = mapper.readTree(chunks.group(2));
+      assertEquals(Integer.parseInt(chunks.group(1)), chunk.get("nodes").size());
+      counts.add(chunk.get("nodes").size());
+      nodes += chunk.get("nodes").size();
+    }
+    assertEquals(Arrays.asList(HtmlReportWriter.CHUNK_SIZE, 3, 3), counts);
+    assertEquals(HtmlReportWriter.CHUNK_SIZE + 6, nodes);
+
+    Matcher summaryMatch = SUMMARY.matcher(html);
+    summaryMatch.find();
+    JsonNode summary = mapper.readTree(summaryMatch.group(1));
+    assertEquals(3, summary.get("pages").asInt());
+    assertEquals(nodes, summary.get("nodes").asInt());
+    JsonNode label = summary.get("rules").get("label");
+    assertEquals(HtmlReportWriter.CHUNK_SIZE + 4, label.get("nodes").asInt());
+    assertEquals(2, label.get("pages").asInt());
+    assertTrue(html.contains("<title>Crawl &lt;report&gt;</title>"));
+  }
+
+  @Test
+  public void shouldNotEndScriptsInsideNodeHtml() throws IOException {
+    Rule rule = rule("label", 1);
+    rule.getNodes().get(0).setHtml("<script>alert(1)</script><!--");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (HtmlReportWriter writer = new HtmlReportWriter(out, "report")) {
+      writer.addScan("https://example.com/", Arrays.asList(rule));
+    }
+    String html = new String(out.toByteArray(), StandardCharsets.UTF_8);
+
+    assertFalse(html.contains("alert(1)</script>"));
+    assertFalse(html.contains("<!--"));
+    Matcher chunk = CHUNK.matcher(html);
+    chunk.find();
+    assertEquals(
+        "<script>alert(1)</script><!--",
+        new ObjectMapper().readTree(chunk.group(2)).at("/nodes/0/3").asText());
+  }
+
+  private static Rule rule(final String id, final int nodeCount) {
+    Rule rule = new Rule();
+    rule.setId(id);
+    rule.setImpact("serious");
+    rule.setHelp(id + " help");
+    rule.setHelpUrl("https://dequeuniversity.com/rules/axe/" + id);
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (int i = 0; i < nodeCount; i++) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(Arrays.asList("#" + id + "-" + i));
+      node.setHtml("<div id=\"" + id + "-" + i + "\"></div>");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+}
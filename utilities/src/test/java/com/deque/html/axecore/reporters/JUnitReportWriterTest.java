@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import static org.junit.Assert.assertEquals;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class JUnitReportWriterTest {
+
+  @Test
+  public void shouldWriteOneSuitePerScan() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JUnitReportWriter writer = new JUnitReportWriter(out)) {
+      writer.addScan(
+          "https://example.com/a",
+          Arrays.asList(rule("label", "#x", "#y")),
+          Arrays.asList(rule("image-alt")));
+      writer.addScan("https://example.com/b", null, Arrays.asList(rule("image-alt")));
+    }
+    Document document =
+        DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(new ByteArrayInputStream(out.toByteArray()));
+
+    NodeList suites = document.getElementsByTagName("testsuite");
+    assertEquals(2, suites.getLength());
+    Element first = (Element) suites.item(0);
+    assertEquals("https://example.com/a", first.getAttribute("name"));
+    assertEquals("3", first.getAttribute("tests"));
+    assertEquals("2", first.getAttribute("failures"));
+
+    NodeList cases = first.getElementsByTagName("testcase");
+    Element failing = (Element) cases.item(1);
+    assertEquals("label", failing.getAttribute("classname"));
+    assertEquals("#y", failing.getAttribute("name"));
+    Element failure = (Element) failing.getElementsByTagName("failure").item(0);
+    assertEquals("label help", failure.getAttribute("message"));
+    assertEquals(0, ((Element) cases.item(2)).getElementsByTagName("failure").getLength());
+
+    Element second = (Element) suites.item(1);
+    assertEquals("1", second.getAttribute("tests"));
+    assertEquals("0", second.getAttribute("failures"));
+  }
+
+  private static Rule rule(final String id, final String... targets) {
+    Rule rule = new Rule();
+    rule.setId(id);
+    rule.setImpact("serious");
+    rule.setHelp(id + " help");
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (String target : targets) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(Arrays.asList(target));
+      node.setHtml("<input id=\"" + target.substring(1) + "\">");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+}
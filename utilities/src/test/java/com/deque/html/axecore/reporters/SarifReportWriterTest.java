@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Deque Systems Inc.,
+ *
+ * Your use of this Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * This entire copyright notice must appear in every copy of this file you
+ * distribute or in any file that contains substantial portions of this source
+ * code.
+ */
+
+package com.deque.html.axecore.reporters;
+
+import static org.junit.Assert.assertEquals;
+
+import com.deque.html.axecore.results.CheckedNode;
+import com.deque.html.axecore.results.Rule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SarifReportWriterTest {
+
+  @Test
+  public void shouldMergeScansIntoOneRun() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SarifReportWriter writer = new SarifReportWriter(out)) {
+      writer.addScan(
+          "https://example.com/a",
+          null,
+          Arrays.asList(rule("image-alt", "critical", "img"), rule("label", "minor", "#x", "#y")));
+      writer.addScan("https://example.com/b", null, null);
+      writer.addScan("https://example.com/c", null, Arrays.asList(rule("label", "moderate", "#z")));
+    }
+    JsonNode log = new ObjectMapper().readTree(out.toByteArray());
+
+    assertEquals("2.1.0", log.get("version").asText());
+    assertEquals(1, log.get("runs").size());
+    JsonNode run = log.get("runs").get(0);
+    assertEquals(4, run.get("results").size());
+    JsonNode last = run.get("results").get(3);
+    assertEquals("label", last.get("ruleId").asText());
+    assertEquals("warning", last.get("level").asText());
+    JsonNode location = last.get("locations").get(0);
+    assertEquals(
+        "https://example.com/c",
+        location.get("physicalLocation").get("artifactLocation").get("uri").asText());
+    assertEquals("#z", location.get("logicalLocations").get(0).get("fullyQualifiedName").asText());
+    assertEquals("error", run.get("results").get(0).get("level").asText());
+
+    JsonNode rules = run.get("tool").get("driver").get("rules");
+    assertEquals(2, rules.size());
+    assertEquals("image-alt", rules.get(0).get("id").asText());
+    assertEquals("label", rules.get(1).get("id").asText());
+  }
+
+  @Test
+  public void shouldJoinFrameSelectors() throws IOException {
+    Rule rule = rule("label", "serious");
+    CheckedNode node = new CheckedNode();
+    node.setTarget(Arrays.asList("iframe", Arrays.asList("#host", "input")));
+    rule.setNodes(Arrays.asList(node));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SarifReportWriter writer = new SarifReportWriter(out)) {
+      writer.addScan("https://example.com/", null, Arrays.asList(rule));
+    }
+    JsonNode result = new ObjectMapper().readTree(out.toByteArray()).at("/runs/0/results/0");
+
+    assertEquals(
+        "iframe >>> #host >>> input",
+        result.at("/locations/0/logicalLocations/0/fullyQualifiedName").asText());
+  }
+
+  private static Rule rule(final String id, final String impact, final String... targets) {
+    Rule rule = new Rule();
+    rule.setId(id);
+    rule.setImpact(impact);
+    rule.setHelp(id + " help");
+    List<CheckedNode> nodes = new ArrayList<>();
+    for (String target : targets) {
+      CheckedNode node = new CheckedNode();
+      node.setTarget(Arrays.asList(target));
+      node.setHtml("<div></div>");
+      nodes.add(node);
+    }
+    rule.setNodes(nodes);
+    return rule;
+  }
+}